@@ -0,0 +1,69 @@
+package com.notebook;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.Set;
+
+// Shared fixtures for the benchmarks: an in-memory H2 database with the baseline schema
+// (as the application's H2 fallback uses) and deterministic synthetic text.
+final class BenchmarkData {
+
+    static final String[] USER_AGENTS = {
+        "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0.0.0 Safari/537.36",
+        "Mozilla/5.0 (Macintosh; Intel Mac OS X 10_15_7) AppleWebKit/605.1.15 (KHTML, like Gecko) Version/17.1 Safari/605.1.15",
+        "Mozilla/5.0 (iPhone; CPU iPhone OS 17_1 like Mac OS X) AppleWebKit/605.1.15 (KHTML, like Gecko) Version/17.1 Mobile/15E148 Safari/604.1",
+        "Mozilla/5.0 (Linux; Android 14; SM-S918B) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0.6099.43 Mobile Safari/537.36",
+        "Mozilla/5.0 (X11; Ubuntu; Linux x86_64; rv:121.0) Gecko/20100101 Firefox/121.0",
+        "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0.0.0 Safari/537.36 Edg/120.0.2210.61",
+        "Mozilla/5.0 (iPad; CPU OS 16_6 like Mac OS X) AppleWebKit/605.1.15 (KHTML, like Gecko) Version/16.6 Mobile/15E148 Safari/604.1",
+        "Mozilla/5.0 (compatible; Googlebot/2.1; +http://www.google.com/bot.html)",
+    };
+
+    private static final String[] SYLLABLES = {
+        "no", "te", "bo", "ok", "pa", "per", "ri", "ng", "ca", "ver", "de", "sign", "or", "der",
+        "pri", "nt", "co", "lor", "spi", "ral", "ha", "rd", "gift", "log", "cu", "stom", "ba", "ch",
+    };
+
+    private BenchmarkData() {
+    }
+
+    // One reused connection, standing in for a warm pool
+    static JdbcTemplate database(String name) {
+        SingleConnectionDataSource dataSource = new SingleConnectionDataSource(
+            "jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1;MODE=MySQL", "sa", "", true);
+        new ResourceDatabasePopulator(new ClassPathResource("db/migration/V1__baseline_schema.sql")).execute(dataSource);
+        return new JdbcTemplate(dataSource);
+    }
+
+    // A vocabulary of distinct pseudo-words, so postings and prefixes look like real text
+    static String[] vocabulary(int size, Random random) {
+        Set<String> words = new LinkedHashSet<>();
+        while (words.size() < size) {
+            StringBuilder word = new StringBuilder();
+            int syllables = 2 + random.nextInt(3);
+            for (int i = 0; i < syllables; i++) {
+                word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            words.add(word.toString());
+        }
+        return words.toArray(new String[0]);
+    }
+
+    static String sentence(String[] vocabulary, int words, Random random) {
+        StringBuilder sentence = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                sentence.append(' ');
+            }
+            // Skewed towards the start of the vocabulary, like word frequencies
+            int index = (int) (Math.pow(random.nextDouble(), 3) * vocabulary.length);
+            sentence.append(vocabulary[index]);
+        }
+        return sentence.toString();
+    }
+}
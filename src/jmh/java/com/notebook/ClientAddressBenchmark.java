@@ -0,0 +1,77 @@
+package com.notebook;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+// ClientAddressResolver.resolve, run for every logged visit and every contact form post
+// (it replaced VisitorLoggingService.getClientIpAddress): a direct connection, a request
+// through one trusted proxy, and a spoofing attempt behind two proxies.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClientAddressBenchmark {
+
+    private ClientAddressResolver resolver;
+    private MockHttpServletRequest direct;
+    private MockHttpServletRequest proxied;
+    private MockHttpServletRequest spoofed;
+    private MockHttpServletRequest proxiedIpv6;
+
+    @Setup
+    public void setUp() {
+        resolver = new ClientAddressResolver();
+        ReflectionTestUtils.setField(resolver, "trustedProxiesSpec",
+            "127.0.0.0/8,::1/128,10.0.0.0/8,172.16.0.0/12,192.168.0.0/16,fc00::/7");
+        resolver.init();
+
+        direct = new MockHttpServletRequest();
+        direct.setRemoteAddr("203.0.113.7");
+
+        proxied = new MockHttpServletRequest();
+        proxied.setRemoteAddr("10.0.0.1");
+        proxied.addHeader("X-Forwarded-For", "198.51.100.23");
+
+        spoofed = new MockHttpServletRequest();
+        spoofed.setRemoteAddr("10.0.0.1");
+        spoofed.addHeader("X-Forwarded-For", "1.2.3.4, 198.51.100.23:51234, 10.0.0.2");
+
+        proxiedIpv6 = new MockHttpServletRequest();
+        proxiedIpv6.setRemoteAddr("10.0.0.1");
+        proxiedIpv6.addHeader("X-Forwarded-For", "[2001:db8:85a3::8a2e:370:7334]:443");
+    }
+
+    @Benchmark
+    public String directClient() {
+        return resolver.resolve(direct);
+    }
+
+    @Benchmark
+    public String behindTrustedProxy() {
+        return resolver.resolve(proxied);
+    }
+
+    @Benchmark
+    public String spoofedChain() {
+        return resolver.resolve(spoofed);
+    }
+
+    @Benchmark
+    public String behindTrustedProxyIpv6() {
+        return resolver.resolve(proxiedIpv6);
+    }
+}
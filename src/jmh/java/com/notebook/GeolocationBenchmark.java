@@ -0,0 +1,97 @@
+package com.notebook;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// IpGeolocationService.lookup (formerly VisitorLoggingService.getLocationInfo) against a
+// synthetic database of 200,000 IPv4 /24 ranges, for addresses that hit a range, fall
+// between ranges, or are private and never reach the database.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeolocationBenchmark {
+
+    private static final int RANGES = 200_000;
+    private static final int ADDRESSES = 1024;
+    private static final String[] COUNTRIES = {
+        "India", "United States", "Germany", "Brazil", "Japan", "France", "Nigeria", "Canada",
+    };
+
+    private Path directory;
+    private IpGeolocationService service;
+    private final String[] hits = new String[ADDRESSES];
+    private final String[] misses = new String[ADDRESSES];
+    private final String[] locals = new String[ADDRESSES];
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        // Every other /24 from 16.0.0.0 is in the database
+        directory = Files.createTempDirectory("geo-benchmark");
+        Path csv = directory.resolve("ranges.csv");
+        try (Writer out = Files.newBufferedWriter(csv)) {
+            for (int i = 0; i < RANGES; i++) {
+                long network = (16L << 24) + (long) i * 512;
+                out.write(ipv4(network) + "/24," + COUNTRIES[i % COUNTRIES.length] + ",City " + (i % 5000) + "\n");
+            }
+        }
+        service = new IpGeolocationService();
+        ReflectionTestUtils.setField(service, "databaseFile", csv.toString());
+        if (!service.reloadIfChanged()) {
+            throw new IllegalStateException("Geolocation database did not load");
+        }
+
+        Random random = new Random(42);
+        for (int i = 0; i < ADDRESSES; i++) {
+            long range = (16L << 24) + (long) random.nextInt(RANGES) * 512;
+            hits[i] = ipv4(range + random.nextInt(256));
+            misses[i] = ipv4(range + 256 + random.nextInt(256));
+            locals[i] = "192.168." + random.nextInt(256) + "." + random.nextInt(256);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    private static String ipv4(long value) {
+        return (value >>> 24 & 0xFF) + "." + (value >>> 16 & 0xFF) + "." + (value >>> 8 & 0xFF) + "." + (value & 0xFF);
+    }
+
+    @Benchmark
+    public IpGeolocationService.Location lookupHit() {
+        return service.lookup(hits[next++ & (ADDRESSES - 1)]);
+    }
+
+    @Benchmark
+    public IpGeolocationService.Location lookupMiss() {
+        return service.lookup(misses[next++ & (ADDRESSES - 1)]);
+    }
+
+    @Benchmark
+    public IpGeolocationService.Location lookupPrivate() {
+        return service.lookup(locals[next++ & (ADDRESSES - 1)]);
+    }
+}
@@ -0,0 +1,137 @@
+package com.notebook;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+// The admin-side submission paths over an in-memory H2 database holding `submissions`
+// contact submissions spread over three years: the CSV export (what
+// AdminController.exportSubmissions streams), searches and typeahead on the in-memory
+// index (which replaced the filters in searchSubmissions), and the dashboard statistics
+// read from the per-day counters (which replaced the filters in getStats).
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SubmissionQueryBenchmark {
+
+    @Param({ "10000" })
+    private int submissions;
+
+    private JdbcTemplate jdbcTemplate;
+    private SubmissionCsvExporter exporter;
+    private SubmissionSearchIndex searchIndex;
+    private SubmissionStatsService statsService;
+
+    private String commonTerm;
+    private String twoTerms;
+    private String prefix;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        String[] vocabulary = BenchmarkData.vocabulary(3000, random);
+        commonTerm = vocabulary[1];
+        twoTerms = commonTerm + " " + vocabulary[vocabulary.length / 2];
+        prefix = vocabulary[3].substring(0, 3);
+
+        jdbcTemplate = BenchmarkData.database("submissions");
+        List<Object[]> rows = new ArrayList<>(submissions);
+        Map<LocalDate, long[]> daily = new TreeMap<>();
+        LocalDateTime start = LocalDate.now().minusYears(3).atStartOfDay();
+        for (int i = 0; i < submissions; i++) {
+            LocalDateTime submittedAt = start.plusMinutes(random.nextInt(3 * 365 * 24 * 60));
+            boolean withFile = random.nextInt(4) == 0;
+            String name = BenchmarkData.sentence(vocabulary, 2, random);
+            rows.add(new Object[] {
+                name, name.replace(' ', '.') + "@example.com", "+91 98765 " + (10000 + random.nextInt(90000)),
+                BenchmarkData.sentence(vocabulary, 4, random), BenchmarkData.sentence(vocabulary, 40, random),
+                withFile ? "design-" + i + ".pdf" : null, withFile ? (long) random.nextInt(5_000_000) : null,
+                Timestamp.valueOf(submittedAt) });
+            long[] counts = daily.computeIfAbsent(submittedAt.toLocalDate(), day -> new long[2]);
+            counts[0]++;
+            counts[1] += withFile ? 1 : 0;
+        }
+        jdbcTemplate.batchUpdate(
+            "INSERT INTO contact_submissions (name, email, phone, subject, message, file_name, file_size, submitted_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?)", rows);
+        List<Object[]> counters = new ArrayList<>();
+        daily.forEach((day, counts) -> counters.add(new Object[] { Date.valueOf(day), counts[0], counts[1] }));
+        jdbcTemplate.batchUpdate(
+            "INSERT INTO submission_daily_counts (submission_date, total, with_files) VALUES (?, ?, ?)", counters);
+
+        exporter = new SubmissionCsvExporter();
+        ReflectionTestUtils.setField(exporter, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(exporter, "batchSize", 1000);
+
+        searchIndex = new SubmissionSearchIndex();
+        ReflectionTestUtils.setField(searchIndex, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(searchIndex, "maxPrefixExpansions", 200);
+        searchIndex.build();
+
+        statsService = new SubmissionStatsService();
+        ReflectionTestUtils.setField(statsService, "jdbcTemplate", jdbcTemplate);
+    }
+
+    @TearDown
+    public void tearDown() {
+        jdbcTemplate.execute("SHUTDOWN");
+    }
+
+    // One op is a full export of every submission
+    @Benchmark
+    public long exportCsv() throws IOException {
+        return exporter.export(Writer.nullWriter(), SubmissionCsvExporter.DEFAULT_COLUMNS, null, null);
+    }
+
+    @Benchmark
+    public SubmissionSearchIndex.SearchResult searchCommonTerm() {
+        return searchIndex.search(commonTerm, 0, 50);
+    }
+
+    @Benchmark
+    public SubmissionSearchIndex.SearchResult searchTwoTerms() {
+        return searchIndex.search(twoTerms, 0, 50);
+    }
+
+    @Benchmark
+    public SubmissionSearchIndex.SearchResult searchPrefix() {
+        return searchIndex.search(prefix, 0, 50);
+    }
+
+    @Benchmark
+    public List<String> suggest() {
+        return searchIndex.suggest(prefix, 10);
+    }
+
+    @Benchmark
+    public Map<String, Long> dashboardStats() {
+        return statsService.getStats();
+    }
+}
@@ -0,0 +1,67 @@
+package com.notebook;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+// What VisitorLoggingService.logVisitor does per page view before the hand-off to the
+// writer: classify the User-Agent and build the VisitorLog. cacheSize=0 measures the
+// classifier's scan on every call; 1000 is the configured default, where the few
+// distinct agents of real traffic are cache hits.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VisitorLogBenchmark {
+
+    @Param({ "1000", "0" })
+    private int cacheSize;
+
+    private UserAgentClassifier classifier;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        classifier = new UserAgentClassifier();
+        ReflectionTestUtils.setField(classifier, "cacheSize", cacheSize);
+        classifier.init();
+    }
+
+    private String nextAgent() {
+        return BenchmarkData.USER_AGENTS[next++ & (BenchmarkData.USER_AGENTS.length - 1)];
+    }
+
+    @Benchmark
+    public UserAgentClassifier.Classification classifyUserAgent() {
+        return classifier.classify(nextAgent());
+    }
+
+    @Benchmark
+    public VisitorLog buildVisitorLog() {
+        String userAgent = nextAgent();
+        VisitorLog visitorLog = new VisitorLog("203.0.113.7", userAgent, LocalDateTime.now(), "home",
+                                               "https://www.google.com/", "k3J9x0aQ2mZp");
+        UserAgentClassifier.Classification agent = classifier.classify(userAgent);
+        visitorLog.setDeviceType(agent.getDeviceType());
+        visitorLog.setBrowser(agent.getBrowser());
+        visitorLog.setBrowserVersion(agent.getBrowserVersion());
+        visitorLog.setOperatingSystem(agent.getOperatingSystem());
+        visitorLog.setCountry("India");
+        visitorLog.setCity("Pune");
+        return visitorLog;
+    }
+}
@@ -0,0 +1,194 @@
+package com.notebook;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Runs a set of independent dashboard queries concurrently, so a dashboard takes about
+// as long as its slowest query instead of the sum of all of them. The pool is bounded
+// (by default to half the connection pool) so dashboards cannot starve page requests of
+// connections. A query that fails or is still running when query-timeout-ms has passed
+// since the fan-out started gets its fallback value and is reported by name, so the
+// page renders with what finished. Each query runs in a read-only transaction that
+// times out at the same deadline; JDBC ignores interrupts, so it is the statement
+// timeout (applied by Hibernate and JdbcTemplate from the transaction) that cancels a
+// slow query and hands its thread and connection back. The deadline is also published
+// as QueryDeadline for the visitor archive scan; the remaining non-JDBC work (sketch
+// merges) is bounded in-memory computation.
+@Component
+public class AnalyticsQueryExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalyticsQueryExecutor.class);
+
+    // Result key listing the queries that fell back; absent when everything completed
+    public static final String INCOMPLETE_KEY = "incompleteQueries";
+
+    public static final class Query {
+        final Supplier<?> supplier;
+        final Object fallback;
+
+        Query(Supplier<?> supplier, Object fallback) {
+            this.supplier = supplier;
+            this.fallback = fallback;
+        }
+    }
+
+    public static Query query(Supplier<?> supplier, Object fallback) {
+        return new Query(supplier, fallback);
+    }
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${admin.analytics.parallelism:0}")
+    private int parallelism;
+
+    @Value("${spring.datasource.hikari.maximum-pool-size:10}")
+    private int connectionPoolSize;
+
+    @Value("${admin.analytics.query-timeout-ms:5000}")
+    private long queryTimeoutMillis;
+
+    private ThreadPoolExecutor executor;
+
+    private final AtomicLong fanOuts = new AtomicLong();
+    private final AtomicLong queries = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile long lastFanOutMillis;
+    private volatile long lastSlowestQueryMillis;
+    private volatile long lastSummedQueryMillis;
+
+    @PostConstruct
+    public void init() {
+        if (parallelism <= 0) {
+            parallelism = Math.max(1, connectionPoolSize / 2);
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(parallelism, parallelism, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, "analytics-query-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // Runs every query and returns name -> result (or fallback) in the given order
+    public Map<String, Object> runAll(Map<String, Query> namedQueries) {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(queryTimeoutMillis);
+        long[] elapsed = new long[namedQueries.size()];
+
+        Map<String, Future<?>> futures = new LinkedHashMap<>();
+        int index = 0;
+        for (Map.Entry<String, Query> entry : namedQueries.entrySet()) {
+            int slot = index++;
+            Supplier<?> supplier = entry.getValue().supplier;
+            futures.put(entry.getKey(), executor.submit(() -> {
+                long queryStart = System.nanoTime();
+                try {
+                    long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - queryStart);
+                    if (remainingMillis <= 0) {
+                        throw new TimeoutException("Queued past the deadline");
+                    }
+                    // Transaction timeouts are whole seconds; round up so a query never
+                    // gets less time than the fan-out allows
+                    TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+                    transaction.setReadOnly(true);
+                    transaction.setTimeout((int) Math.min(Integer.MAX_VALUE, (remainingMillis + 999) / 1000));
+                    QueryDeadline.set(deadline);
+                    try {
+                        return transaction.execute(status -> supplier.get());
+                    } finally {
+                        QueryDeadline.clear();
+                    }
+                } finally {
+                    elapsed[slot] = System.nanoTime() - queryStart;
+                }
+            }));
+        }
+
+        Map<String, Object> results = new LinkedHashMap<>();
+        List<String> incomplete = new ArrayList<>();
+        for (Map.Entry<String, Future<?>> entry : futures.entrySet()) {
+            String name = entry.getKey();
+            Future<?> future = entry.getValue();
+            try {
+                results.put(name, future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                timedOut.incrementAndGet();
+                incomplete.add(name);
+                results.put(name, namedQueries.get(name).fallback);
+                logger.warn("Analytics query {} timed out after {} ms", name, queryTimeoutMillis);
+            } catch (ExecutionException e) {
+                failed.incrementAndGet();
+                incomplete.add(name);
+                results.put(name, namedQueries.get(name).fallback);
+                logger.error("Analytics query {} failed: {}", name, e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                future.cancel(true);
+                incomplete.add(name);
+                results.put(name, namedQueries.get(name).fallback);
+            }
+        }
+        if (!incomplete.isEmpty()) {
+            results.put(INCOMPLETE_KEY, incomplete);
+        }
+
+        fanOuts.incrementAndGet();
+        queries.addAndGet(namedQueries.size());
+        long slowest = 0;
+        long summed = 0;
+        for (long nanos : elapsed) {
+            slowest = Math.max(slowest, nanos);
+            summed += nanos;
+        }
+        lastFanOutMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        lastSlowestQueryMillis = TimeUnit.NANOSECONDS.toMillis(slowest);
+        lastSummedQueryMillis = TimeUnit.NANOSECONDS.toMillis(summed);
+        return results;
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("parallelism", parallelism);
+        metrics.put("queryTimeoutMillis", queryTimeoutMillis);
+        metrics.put("fanOuts", fanOuts.get());
+        metrics.put("queries", queries.get());
+        metrics.put("timedOut", timedOut.get());
+        metrics.put("failed", failed.get());
+        metrics.put("queued", executor.getQueue().size());
+        metrics.put("lastFanOutMillis", lastFanOutMillis);
+        metrics.put("lastSlowestQueryMillis", lastSlowestQueryMillis);
+        metrics.put("lastSummedQueryMillis", lastSummedQueryMillis);
+        return metrics;
+    }
+}
@@ -0,0 +1,82 @@
+package com.notebook;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+// One-shot move of attachments stored inline in contact_submissions.file_data into the
+// AttachmentStore. Runs at startup, one row at a time, and only touches rows that still
+// have a blob, so it is safe to leave enabled: once done it costs a single query.
+@Component
+public class AttachmentBlobMigration implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(AttachmentBlobMigration.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AttachmentStore attachmentStore;
+
+    @Value("${attachments.migration.enabled:true}")
+    private boolean enabled;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+
+        List<Long> ids;
+        try {
+            ids = jdbcTemplate.queryForList(
+                "SELECT id FROM contact_submissions WHERE file_data IS NOT NULL ORDER BY id", Long.class);
+        } catch (DataAccessException e) {
+            // Fresh schema without the legacy column: nothing to migrate
+            logger.debug("No legacy file_data column to migrate: {}", e.getMessage());
+            return;
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        logger.info("Migrating {} inline attachments to the attachment store...", ids.size());
+        int migrated = 0;
+        for (Long id : ids) {
+            try {
+                AttachmentStore.StoredAttachment stored = jdbcTemplate.query(
+                    "SELECT file_data FROM contact_submissions WHERE id = ?",
+                    rs -> {
+                        if (!rs.next()) {
+                            return null;
+                        }
+                        try (InputStream in = rs.getBinaryStream(1)) {
+                            return in == null ? null : attachmentStore.put(in);
+                        } catch (IOException e) {
+                            throw new IllegalStateException(e);
+                        }
+                    }, id);
+                if (stored == null) {
+                    continue;
+                }
+                jdbcTemplate.update(
+                    "UPDATE contact_submissions SET file_key = ?, file_size = ?, file_data = NULL WHERE id = ?",
+                    stored.getKey(), stored.getSize(), id);
+                migrated++;
+            } catch (Exception e) {
+                logger.error("Failed to migrate attachment of submission {}: {}", id, e.getMessage());
+            }
+        }
+        logger.info("Attachment migration finished: {} of {} moved", migrated, ids.size());
+    }
+}
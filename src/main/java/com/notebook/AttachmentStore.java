@@ -0,0 +1,45 @@
+package com.notebook;
+
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.List;
+
+// Storage for contact form attachments, keyed by the SHA-256 of their content so an
+// identical upload is only stored once. Submissions keep just the key.
+public interface AttachmentStore {
+
+    // Implementations copy uploads through a buffer of this size, so heap use per
+    // upload does not depend on the file size
+    int COPY_BUFFER_SIZE = 64 * 1024;
+
+    class StoredAttachment {
+        private final String key;
+        private final long size;
+
+        public StoredAttachment(String key, long size) {
+            this.key = key;
+            this.size = size;
+        }
+
+        public String getKey() { return key; }
+        public long getSize() { return size; }
+    }
+
+    // Reads the stream to the end, hashing while writing, and returns the content key.
+    // Storing content that is already present counts as storing it again for
+    // keysStoredBefore and deleteIfStoredBefore.
+    StoredAttachment put(InputStream content) throws IOException;
+
+    // Returns a resource for the stored content; check exists() before serving
+    Resource open(String key);
+
+    // Keys of content last stored before the cutoff
+    List<String> keysStoredBefore(Instant cutoff) throws IOException;
+
+    // Deletes the content unless it was stored again at or after the cutoff; atomic with
+    // respect to put, so an upload that reuses the key either keeps it or stores it anew
+    boolean deleteIfStoredBefore(String key, Instant cutoff) throws IOException;
+}
@@ -0,0 +1,82 @@
+package com.notebook;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+
+// Works out the client address behind reverse proxies. Forwarding headers are only
+// believed when the connection comes from a trusted proxy, and the X-Forwarded-For
+// chain (all header lines, in order) is walked from the right, skipping trusted hops,
+// so a client cannot spoof its address by prepending entries. Entries may carry ports
+// or IPv6 brackets; anything that is not an IP literal ends the walk.
+@Component
+public class ClientAddressResolver {
+
+    @Value("${visitor.trusted-proxies:127.0.0.0/8,::1/128,10.0.0.0/8,172.16.0.0/12,192.168.0.0/16,fc00::/7}")
+    private String trustedProxiesSpec;
+
+    private final List<long[]> trustedProxies = new ArrayList<>();
+
+    @PostConstruct
+    public void init() {
+        for (String cidr : trustedProxiesSpec.split(",")) {
+            if (!cidr.isBlank()) {
+                trustedProxies.add(IpAddresses.parseCidr(cidr));
+            }
+        }
+    }
+
+    public String resolve(HttpServletRequest request) {
+        String remote = request.getRemoteAddr();
+        long[] scratch = new long[2];
+        if (!isTrusted(remote, scratch)) {
+            return remote;
+        }
+
+        List<String> chain = new ArrayList<>();
+        Enumeration<String> headers = request.getHeaders("X-Forwarded-For");
+        for (String header : headers != null ? Collections.list(headers) : List.<String>of()) {
+            for (String entry : header.split(",")) {
+                chain.add(entry);
+            }
+        }
+        String client = remote;
+        for (int i = chain.size() - 1; i >= 0; i--) {
+            String address = IpAddresses.normalize(chain.get(i), scratch);
+            if (address == null) {
+                break;
+            }
+            client = address;
+            if (!isTrusted(address, scratch)) {
+                break;
+            }
+        }
+        if (chain.isEmpty()) {
+            String realIp = request.getHeader("X-Real-IP");
+            String address = realIp != null ? IpAddresses.normalize(realIp, scratch) : null;
+            if (address != null) {
+                client = address;
+            }
+        }
+        return client;
+    }
+
+    private boolean isTrusted(String address, long[] scratch) {
+        if (address == null || !IpAddresses.parse(address, scratch)) {
+            return false;
+        }
+        for (long[] range : trustedProxies) {
+            if (IpAddresses.compare(scratch[0], scratch[1], range[0], range[1]) >= 0
+                    && IpAddresses.compare(scratch[0], scratch[1], range[2], range[3]) <= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,77 @@
+package com.notebook;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Collects HikariCP pool statistics (active, idle, pending) and connection wait times
+// so they can be shown on /admin/metrics without pulling in a metrics library.
+public class ConnectionPoolMetrics implements MetricsTrackerFactory {
+
+    private volatile String poolName;
+    private volatile PoolStats poolStats;
+
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder acquireNanosTotal = new LongAdder();
+    private final AtomicLong acquireNanosMax = new AtomicLong();
+    private final LongAdder usageMillisTotal = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder connectionsCreated = new LongAdder();
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        // Called once per pool; after an H2 fallback this points at the fallback pool
+        this.poolName = poolName;
+        this.poolStats = poolStats;
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+                connectionsCreated.increment();
+            }
+
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                acquisitions.increment();
+                acquireNanosTotal.add(elapsedAcquiredNanos);
+                acquireNanosMax.accumulateAndGet(elapsedAcquiredNanos, Math::max);
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                usageMillisTotal.add(elapsedBorrowedMillis);
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                timeouts.increment();
+            }
+        };
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        PoolStats stats = poolStats;
+        metrics.put("pool", poolName);
+        if (stats != null) {
+            metrics.put("active", stats.getActiveConnections());
+            metrics.put("idle", stats.getIdleConnections());
+            metrics.put("pending", stats.getPendingThreads());
+            metrics.put("total", stats.getTotalConnections());
+            metrics.put("max", stats.getMaxConnections());
+        }
+        long count = acquisitions.sum();
+        metrics.put("acquisitions", count);
+        metrics.put("avgWaitMicros", count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(acquireNanosTotal.sum() / count));
+        metrics.put("maxWaitMicros", TimeUnit.NANOSECONDS.toMicros(acquireNanosMax.get()));
+        metrics.put("avgUsageMillis", count == 0 ? 0 : usageMillisTotal.sum() / count);
+        metrics.put("timeouts", timeouts.sum());
+        metrics.put("connectionsCreated", connectionsCreated.sum());
+        return metrics;
+    }
+}
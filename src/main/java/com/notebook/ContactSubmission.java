@@ -4,7 +4,9 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "contact_submissions")
+// Backs the admin list's keyset pagination (submitted_at DESC, id DESC)
+@Table(name = "contact_submissions",
+       indexes = @Index(name = "idx_submissions_submitted_at_id", columnList = "submitted_at, id"))
 public class ContactSubmission {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -31,9 +33,12 @@ public class ContactSubmission {
     @Column(nullable = false)
     private String subject;
 
-    @Lob
-    @Column(name = "file_data", columnDefinition = "LONGBLOB")
-    private byte[] fileData;
+    // SHA-256 of the attachment content; the bytes live in the AttachmentStore
+    @Column(name = "file_key", length = 64)
+    private String fileKey;
+
+    @Column(name = "file_size")
+    private Long fileSize;
 
     @Column(name = "submitted_at")
     private LocalDateTime submittedAt = LocalDateTime.now();
@@ -51,8 +56,10 @@ public class ContactSubmission {
     public void setFileName(String fileName) { this.fileName = fileName; }
     public String getFileType() { return fileType; }
     public void setFileType(String fileType) { this.fileType = fileType; }
-    public byte[] getFileData() { return fileData; }
-    public void setFileData(byte[] fileData) { this.fileData = fileData; }
+    public String getFileKey() { return fileKey; }
+    public void setFileKey(String fileKey) { this.fileKey = fileKey; }
+    public Long getFileSize() { return fileSize; }
+    public void setFileSize(Long fileSize) { this.fileSize = fileSize; }
     public LocalDateTime getSubmittedAt() { return submittedAt; }
     public void setSubmittedAt(LocalDateTime submittedAt) { this.submittedAt = submittedAt; }
     public String getPhone() { return phone; }
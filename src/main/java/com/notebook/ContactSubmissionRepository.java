@@ -1,5 +1,36 @@
 package com.notebook;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
-public interface ContactSubmissionRepository extends JpaRepository<ContactSubmission, Long> {} 
\ No newline at end of file
+public interface ContactSubmissionRepository extends JpaRepository<ContactSubmission, Long> {
+
+    String SUMMARY_SELECT = "SELECT new com.notebook.SubmissionSummary(s.id, s.name, s.email, s.phone, s.subject, " +
+            "SUBSTRING(s.message, 1, " + SubmissionSummary.MESSAGE_PREVIEW_LENGTH + "), " +
+            "s.fileName, s.fileKey, s.fileSize, s.submittedAt) FROM ContactSubmission s ";
+
+    // Newest submissions first (keyset pagination, first page)
+    @Query(SUMMARY_SELECT + "ORDER BY s.submittedAt DESC, s.id DESC")
+    List<SubmissionSummary> findLatestSummaries(Pageable limit);
+
+    // Submissions strictly older than the (submittedAt, id) cursor
+    @Query(SUMMARY_SELECT +
+           "WHERE s.submittedAt < :beforeTime OR (s.submittedAt = :beforeTime AND s.id < :beforeId) " +
+           "ORDER BY s.submittedAt DESC, s.id DESC")
+    List<SubmissionSummary> findSummariesBefore(@Param("beforeTime") LocalDateTime beforeTime,
+                                                @Param("beforeId") Long beforeId,
+                                                Pageable limit);
+
+    // Unordered; callers put the rows back in the order of the ids
+    @Query(SUMMARY_SELECT + "WHERE s.id IN :ids")
+    List<SubmissionSummary> findSummariesByIds(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT s.message FROM ContactSubmission s WHERE s.id = :id")
+    Optional<String> findMessageById(@Param("id") Long id);
+}
@@ -0,0 +1,167 @@
+package com.notebook;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+// Serves the admin dashboard aggregates from snapshots instead of re-running every
+// query per page view. The overview (submission and visit totals, shared by /admin,
+// /admin/stats and /admin/analytics) and the per-range analytics breakdowns are each
+// cached for ttl-ms, refreshed in the background after refresh-after-ms, and computed
+// once for all concurrent viewers. Submission changes invalidate the overview at once,
+// and a new day invalidates everything; visit figures are otherwise allowed to lag by
+// up to the TTL.
+@Service
+public class DashboardSnapshotService {
+
+    private static final String OVERVIEW_KEY = "overview";
+
+    @Autowired
+    private SubmissionStatsService submissionStatsService;
+
+    @Autowired
+    private VisitorLoggingService visitorLoggingService;
+
+    @Autowired
+    private AnalyticsQueryExecutor analyticsQueryExecutor;
+
+    @Autowired
+    private LiveCounterFeed liveCounterFeed;
+
+    @Value("${admin.dashboard.cache.ttl-ms:30000}")
+    private long ttlMillis;
+
+    @Value("${admin.dashboard.cache.refresh-after-ms:20000}")
+    private long refreshAfterMillis;
+
+    @Value("${admin.dashboard.cache.max-ranges:32}")
+    private int maxRanges;
+
+    private ExecutorService refreshExecutor;
+    private SnapshotCache<String, Map<String, Object>> overviewCache;
+    private SnapshotCache<List<LocalDate>, Map<String, Object>> analyticsCache;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        refreshExecutor = Executors.newFixedThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "dashboard-refresh-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Snapshots missing a timed-out or failed query are shown once, then recomputed
+        Predicate<Map<String, Object>> complete = value -> !value.containsKey(AnalyticsQueryExecutor.INCOMPLETE_KEY);
+        overviewCache = new SnapshotCache<>("overview", key -> computeOverview(), complete,
+                                            refreshExecutor, ttlMillis, refreshAfterMillis, 1);
+        analyticsCache = new SnapshotCache<>("analytics", range -> computeAnalytics(range.get(0), range.get(1)), complete,
+                                             refreshExecutor, ttlMillis, refreshAfterMillis, maxRanges);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    // Submission and visit totals plus snapshotComputedAt/snapshotAgeSeconds
+    public Map<String, Object> getOverview() {
+        return withAge(overviewCache.get(OVERVIEW_KEY));
+    }
+
+    // Breakdowns for the inclusive date range (either bound may be null)
+    public Map<String, Object> getAnalytics(LocalDate from, LocalDate to) {
+        return withAge(analyticsCache.get(Arrays.asList(from, to)));
+    }
+
+    @EventListener
+    public void onSubmissionsChanged(SubmissionsChangedEvent event) {
+        overviewCache.invalidate();
+    }
+
+    // Today's and this week's totals, and open-ended ranges, all move at midnight. Runs on
+    // the live feed's ticker before it tells dashboards to reload /admin/stats
+    @EventListener
+    public void onDayChanged(DayChangedEvent event) {
+        invalidateAnalytics();
+    }
+
+    // For changes to visit history that should show up before the TTL runs out
+    public void invalidateAnalytics() {
+        overviewCache.invalidate();
+        analyticsCache.invalidate();
+    }
+
+    // Independent queries run concurrently; a slow one falls back to an empty value
+    private Map<String, Object> computeOverview() {
+        // Taken first, so live updates applied on top may repeat a visit but never miss one
+        String liveSequence = liveCounterFeed.currentSequence();
+        Map<String, AnalyticsQueryExecutor.Query> queries = new LinkedHashMap<>();
+        queries.put("submissionStats", AnalyticsQueryExecutor.query(submissionStatsService::getStats, Map.of()));
+        queries.put("totalVisits", AnalyticsQueryExecutor.query(visitorLoggingService::getTotalVisits, null));
+        queries.put("todayVisits", AnalyticsQueryExecutor.query(visitorLoggingService::getTodayVisits, null));
+        queries.put("weekVisits", AnalyticsQueryExecutor.query(visitorLoggingService::getWeekVisits, null));
+        queries.put("monthVisits", AnalyticsQueryExecutor.query(visitorLoggingService::getMonthVisits, null));
+        queries.put("uniqueVisitorsToday", AnalyticsQueryExecutor.query(visitorLoggingService::getUniqueVisitorsToday, null));
+        Map<String, Object> overview = analyticsQueryExecutor.runAll(queries);
+
+        // Flatten the submission statistics into the top level, as the pages expect
+        @SuppressWarnings("unchecked")
+        Map<String, Object> submissionStats = (Map<String, Object>) overview.remove("submissionStats");
+        Map<String, Object> result = new LinkedHashMap<>(submissionStats);
+        result.putAll(overview);
+        result.put("liveSequence", liveSequence);
+        return result;
+    }
+
+    private Map<String, Object> computeAnalytics(LocalDate from, LocalDate to) {
+        LocalDateTime rangeStart = from != null ? from.atStartOfDay() : null;
+        LocalDateTime rangeEnd = to != null ? to.plusDays(1).atStartOfDay() : null;
+        // Unique counts merge daily sketches, so an open range falls back to the last 30 days
+        LocalDate uniqueTo = to != null ? to : LocalDate.now();
+        LocalDate uniqueFrom = from != null ? from : uniqueTo.minusDays(29);
+
+        Map<String, AnalyticsQueryExecutor.Query> queries = new LinkedHashMap<>();
+        queries.put("visitsByPage", AnalyticsQueryExecutor.query(() -> visitorLoggingService.getVisitsByPage(rangeStart, rangeEnd), List.of()));
+        queries.put("visitsByDeviceType", AnalyticsQueryExecutor.query(() -> visitorLoggingService.getVisitsByDeviceType(rangeStart, rangeEnd), List.of()));
+        queries.put("visitsByBrowser", AnalyticsQueryExecutor.query(() -> visitorLoggingService.getVisitsByBrowser(rangeStart, rangeEnd), List.of()));
+        queries.put("visitsByOperatingSystem", AnalyticsQueryExecutor.query(() -> visitorLoggingService.getVisitsByOperatingSystem(rangeStart, rangeEnd), List.of()));
+        queries.put("recentVisits", AnalyticsQueryExecutor.query(visitorLoggingService::getRecentVisits, List.of()));
+        queries.put("uniqueVisitors", AnalyticsQueryExecutor.query(() -> visitorLoggingService.getUniqueVisitors(uniqueFrom, uniqueTo), null));
+        queries.put("uniqueSessions", AnalyticsQueryExecutor.query(() -> visitorLoggingService.getUniqueSessions(uniqueFrom, uniqueTo), null));
+        queries.put("uniqueVisitorsByPage", AnalyticsQueryExecutor.query(() -> visitorLoggingService.getUniqueVisitorsByPage(uniqueFrom, uniqueTo), List.of()));
+        Map<String, Object> analytics = analyticsQueryExecutor.runAll(queries);
+        analytics.put("uniqueFrom", uniqueFrom);
+        analytics.put("uniqueTo", uniqueTo);
+        return analytics;
+    }
+
+    private static Map<String, Object> withAge(SnapshotCache.Snapshot<Map<String, Object>> snapshot) {
+        Map<String, Object> result = new LinkedHashMap<>(snapshot.getValue());
+        result.put("snapshotComputedAt",
+                   LocalDateTime.ofInstant(Instant.ofEpochMilli(snapshot.getComputedAtMillis()), ZoneId.systemDefault()));
+        result.put("snapshotAgeSeconds", snapshot.getAgeMillis() / 1000);
+        return result;
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("overview", overviewCache.getMetrics());
+        metrics.put("analytics", analyticsCache.getMetrics());
+        return metrics;
+    }
+}
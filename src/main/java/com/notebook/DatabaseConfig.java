@@ -1,13 +1,15 @@
 package com.notebook;
 
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
 
 import javax.sql.DataSource;
+import java.util.Properties;
 
 @Configuration
 public class DatabaseConfig {
@@ -21,35 +23,58 @@ public class DatabaseConfig {
     @Value("${spring.datasource.password}")
     private String mysqlPassword;
 
+    // Pool settings (size, timeouts, validation, leak detection, driver properties)
+    // are bound from spring.datasource.hikari.* and shared by both databases.
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariConfig hikariConfig() {
+        return new HikariConfig();
+    }
+
+    @Bean
+    public ConnectionPoolMetrics connectionPoolMetrics() {
+        return new ConnectionPoolMetrics();
+    }
+
     @Bean
     @Primary
-    public DataSource dataSource() {
-        DriverManagerDataSource dataSource = new DriverManagerDataSource();
-        
+    public DataSource dataSource(HikariConfig hikariConfig, ConnectionPoolMetrics connectionPoolMetrics) {
         try {
-            // Try MySQL first
-            dataSource.setDriverClassName("com.mysql.cj.jdbc.Driver");
-            dataSource.setUrl(mysqlUrl);
-            dataSource.setUsername(mysqlUsername);
-            dataSource.setPassword(mysqlPassword);
-            
-            // Test the connection
-            dataSource.getConnection().close();
-            System.out.println("✅ MySQL database connection successful!");
-            
+            // Try MySQL first; the pool fails fast if the first connection can't be opened
+            HikariConfig mysqlConfig = copyOf(hikariConfig, connectionPoolMetrics);
+            mysqlConfig.setDriverClassName("com.mysql.cj.jdbc.Driver");
+            mysqlConfig.setJdbcUrl(mysqlUrl);
+            mysqlConfig.setUsername(mysqlUsername);
+            mysqlConfig.setPassword(mysqlPassword);
+
+            HikariDataSource dataSource = new HikariDataSource(mysqlConfig);
+            System.out.println("✅ MySQL database connection successful! (pool max size "
+                               + mysqlConfig.getMaximumPoolSize() + ")");
+            return dataSource;
+
         } catch (Exception e) {
             System.out.println("⚠️ MySQL connection failed: " + e.getMessage());
             System.out.println("🔄 Falling back to H2 in-memory database...");
-            
-            // Fallback to H2
-            dataSource.setDriverClassName("org.h2.Driver");
-            dataSource.setUrl("jdbc:h2:mem:testdb");
-            dataSource.setUsername("sa");
-            dataSource.setPassword("");
-            
+
+            // Fallback to H2; keep the database alive between pooled connections and
+            // accept the MySQL DDL that Hibernate generates
+            HikariConfig h2Config = copyOf(hikariConfig, connectionPoolMetrics);
+            h2Config.setDriverClassName("org.h2.Driver");
+            h2Config.setJdbcUrl("jdbc:h2:mem:testdb;DB_CLOSE_DELAY=-1;MODE=MySQL");
+            h2Config.setUsername("sa");
+            h2Config.setPassword("");
+            // MySQL driver properties (statement cache etc.) are rejected by H2
+            h2Config.setDataSourceProperties(new Properties());
+
             System.out.println("✅ H2 in-memory database configured as fallback");
+            return new HikariDataSource(h2Config);
         }
-        
-        return dataSource;
     }
-} 
\ No newline at end of file
+
+    private HikariConfig copyOf(HikariConfig template, ConnectionPoolMetrics connectionPoolMetrics) {
+        HikariConfig config = new HikariConfig();
+        template.copyStateTo(config);
+        config.setMetricsTrackerFactory(connectionPoolMetrics);
+        return config;
+    }
+}
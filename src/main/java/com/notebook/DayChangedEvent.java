@@ -0,0 +1,18 @@
+package com.notebook;
+
+import java.time.LocalDate;
+
+// Published when the live feed's ticker first sees a new calendar day, before it asks
+// open dashboards to reload their totals
+public class DayChangedEvent {
+
+    private final LocalDate day;
+
+    public DayChangedEvent(LocalDate day) {
+        this.day = day;
+    }
+
+    public LocalDate getDay() {
+        return day;
+    }
+}
@@ -0,0 +1,310 @@
+package com.notebook;
+
+import java.io.BufferedReader;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// A read-only IP range database, memory-mapped from a compact binary file:
+//
+//   "NBGEOIP1", int v4Count, int v6Count, int locationCount,
+//   v4Count x (int start, int end, int location)          sorted, non-overlapping
+//   v6Count x (long startHi, startLo, endHi, endLo, int location)
+//   locationCount x (country, city) as (short length, UTF-8 bytes)
+//
+// Lookups binary-search the mapped ranges in place, so opening a database costs one
+// mmap plus decoding the location names, and a lookup allocates nothing. compile()
+// produces the file from a "network,country,city" CSV (CIDR notation, IPv4 or IPv6).
+final class GeoIpDatabase {
+
+    private static final byte[] MAGIC = "NBGEOIP1".getBytes(StandardCharsets.US_ASCII);
+    private static final int HEADER_SIZE = MAGIC.length + 12;
+    private static final int V4_ENTRY = 12;
+    private static final int V6_ENTRY = 36;
+
+    private final ByteBuffer buffer;
+    private final int v4Count;
+    private final int v6Count;
+    private final int v6Base;
+    private final String[] countries;
+    private final String[] cities;
+
+    private GeoIpDatabase(ByteBuffer buffer) {
+        this.buffer = buffer;
+        byte[] magic = new byte[MAGIC.length];
+        buffer.get(0, magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IllegalArgumentException("Not a geolocation database file");
+        }
+        v4Count = buffer.getInt(MAGIC.length);
+        v6Count = buffer.getInt(MAGIC.length + 4);
+        int locationCount = buffer.getInt(MAGIC.length + 8);
+        v6Base = HEADER_SIZE + v4Count * V4_ENTRY;
+
+        countries = new String[locationCount];
+        cities = new String[locationCount];
+        int position = v6Base + v6Count * V6_ENTRY;
+        Map<String, String> interned = new HashMap<>();
+        for (int i = 0; i < locationCount; i++) {
+            int length = buffer.getShort(position) & 0xFFFF;
+            countries[i] = interned.computeIfAbsent(decode(buffer, position + 2, length), s -> s);
+            position += 2 + length;
+            length = buffer.getShort(position) & 0xFFFF;
+            cities[i] = interned.computeIfAbsent(decode(buffer, position + 2, length), s -> s);
+            position += 2 + length;
+        }
+    }
+
+    static GeoIpDatabase open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new GeoIpDatabase(mapped);
+        }
+    }
+
+    int v4Ranges() { return v4Count; }
+    int v6Ranges() { return v6Count; }
+    int locations() { return countries.length; }
+    String country(int location) { return countries[location]; }
+    String city(int location) { return cities[location]; }
+
+    // Location index for an unsigned IPv4 value, or -1
+    int lookupV4(long address) {
+        int ip = (int) address;
+        int low = 0;
+        int high = v4Count - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (Integer.compareUnsigned(buffer.getInt(HEADER_SIZE + mid * V4_ENTRY), ip) <= 0) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (found < 0) {
+            return -1;
+        }
+        int entry = HEADER_SIZE + found * V4_ENTRY;
+        return Integer.compareUnsigned(ip, buffer.getInt(entry + 4)) <= 0 ? buffer.getInt(entry + 8) : -1;
+    }
+
+    // Location index for a 128-bit IPv6 address, or -1
+    int lookupV6(long hi, long lo) {
+        int low = 0;
+        int high = v6Count - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int entry = v6Base + mid * V6_ENTRY;
+            if (IpAddresses.compare(buffer.getLong(entry), buffer.getLong(entry + 8), hi, lo) <= 0) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (found < 0) {
+            return -1;
+        }
+        int entry = v6Base + found * V6_ENTRY;
+        return IpAddresses.compare(hi, lo, buffer.getLong(entry + 16), buffer.getLong(entry + 24)) <= 0
+                ? buffer.getInt(entry + 32) : -1;
+    }
+
+    private static String decode(ByteBuffer buffer, int position, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(position, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static final class Range {
+        final long startHi;
+        final long startLo;
+        final long endHi;
+        final long endLo;
+        final int location;
+
+        // Next address not yet emitted while flattening
+        long cursorHi;
+        long cursorLo;
+
+        Range(long startHi, long startLo, long endHi, long endLo, int location) {
+            this.startHi = startHi;
+            this.startLo = startLo;
+            this.endHi = endHi;
+            this.endLo = endLo;
+            this.location = location;
+            this.cursorHi = startHi;
+            this.cursorLo = startLo;
+        }
+    }
+
+    // Compiles a CSV of "network,country,city" lines into the binary format, written to
+    // a temp file and moved over target so a running reload never maps a partial file.
+    // Nested networks are flattened so the most specific one wins; the number of ranges
+    // skipped because they partially overlap an earlier one is returned.
+    static int compile(Path csv, Path target) throws IOException {
+        List<Range> v4 = new ArrayList<>();
+        List<Range> v6 = new ArrayList<>();
+        List<String[]> locations = new ArrayList<>();
+        Map<String, Integer> locationIds = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(csv, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#") || line.startsWith("network")) {
+                    continue;
+                }
+                List<String> fields = splitCsv(line);
+                String country = fields.size() > 1 ? fields.get(1) : "Unknown";
+                String city = fields.size() > 2 ? fields.get(2) : "Unknown";
+                Integer location = locationIds.get(country + '\n' + city);
+                if (location == null) {
+                    location = locations.size();
+                    locationIds.put(country + '\n' + city, location);
+                    locations.add(new String[] { country, city });
+                }
+                long[] bounds = IpAddresses.parseCidr(fields.get(0));
+                Range range = new Range(bounds[0], bounds[1], bounds[2], bounds[3], location);
+                if (fields.get(0).indexOf(':') < 0) {
+                    v4.add(range);
+                } else {
+                    v6.add(range);
+                }
+            }
+        }
+
+        int skipped = flatten(v4) + flatten(v6);
+
+        Path temp = Files.createTempFile(target.toAbsolutePath().getParent(), "geoip-", ".tmp");
+        try {
+            try (OutputStream file = Files.newOutputStream(temp);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+                out.write(MAGIC);
+                out.writeInt(v4.size());
+                out.writeInt(v6.size());
+                out.writeInt(locations.size());
+                for (Range range : v4) {
+                    out.writeInt((int) range.startLo);
+                    out.writeInt((int) range.endLo);
+                    out.writeInt(range.location);
+                }
+                for (Range range : v6) {
+                    out.writeLong(range.startHi);
+                    out.writeLong(range.startLo);
+                    out.writeLong(range.endHi);
+                    out.writeLong(range.endLo);
+                    out.writeInt(range.location);
+                }
+                for (String[] location : locations) {
+                    for (String name : location) {
+                        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+                        int length = Math.min(bytes.length, 0xFFFF);
+                        out.writeShort(length);
+                        out.write(bytes, 0, length);
+                    }
+                }
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return skipped;
+    }
+
+    // Turns possibly nested ranges into sorted, disjoint ones: sorted by start with wider
+    // ranges first, each range is pushed over the ranges enclosing it, and the parts of
+    // an enclosing range around its children are emitted as separate ranges
+    private static int flatten(List<Range> ranges) {
+        ranges.sort((a, b) -> {
+            int c = IpAddresses.compare(a.startHi, a.startLo, b.startHi, b.startLo);
+            return c != 0 ? c : IpAddresses.compare(b.endHi, b.endLo, a.endHi, a.endLo);
+        });
+        int skipped = 0;
+        List<Range> flat = new ArrayList<>(ranges.size());
+        Deque<Range> open = new ArrayDeque<>();
+        for (Range range : ranges) {
+            while (!open.isEmpty() && IpAddresses.compare(open.peek().endHi, open.peek().endLo, range.startHi, range.startLo) < 0) {
+                close(open, flat);
+            }
+            Range parent = open.peek();
+            if (parent != null) {
+                if (IpAddresses.compare(range.endHi, range.endLo, parent.endHi, parent.endLo) > 0) {
+                    skipped++;
+                    continue;
+                }
+                if (IpAddresses.compare(parent.cursorHi, parent.cursorLo, range.startHi, range.startLo) < 0) {
+                    long beforeLo = range.startLo - 1;
+                    long beforeHi = range.startLo == 0 ? range.startHi - 1 : range.startHi;
+                    flat.add(new Range(parent.cursorHi, parent.cursorLo, beforeHi, beforeLo, parent.location));
+                }
+            }
+            open.push(range);
+        }
+        while (!open.isEmpty()) {
+            close(open, flat);
+        }
+        ranges.clear();
+        ranges.addAll(flat);
+        return skipped;
+    }
+
+    // Emits the rest of the innermost open range and moves its parent past it
+    private static void close(Deque<Range> open, List<Range> flat) {
+        Range range = open.pop();
+        if (IpAddresses.compare(range.cursorHi, range.cursorLo, range.endHi, range.endLo) <= 0) {
+            flat.add(new Range(range.cursorHi, range.cursorLo, range.endHi, range.endLo, range.location));
+        }
+        Range parent = open.peek();
+        if (parent != null) {
+            parent.cursorLo = range.endLo + 1;
+            parent.cursorHi = range.endLo == -1L ? range.endHi + 1 : range.endHi;
+        }
+    }
+
+    private static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString().trim());
+        return fields;
+    }
+}
@@ -0,0 +1,42 @@
+package com.notebook;
+
+import jakarta.servlet.http.HttpSessionEvent;
+import jakarta.servlet.http.HttpSessionListener;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Counts servlet sessions as the container creates and expires them, next to heap usage,
+// so /admin/metrics shows what anonymous traffic costs in server-side state. Only admin
+// logins should create sessions.
+@Component
+public class HttpSessionMetrics implements HttpSessionListener {
+
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong destroyed = new AtomicLong();
+
+    @Override
+    public void sessionCreated(HttpSessionEvent event) {
+        created.incrementAndGet();
+    }
+
+    @Override
+    public void sessionDestroyed(HttpSessionEvent event) {
+        destroyed.incrementAndGet();
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("active", created.get() - destroyed.get());
+        metrics.put("created", created.get());
+        metrics.put("destroyed", destroyed.get());
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        metrics.put("heapUsedBytes", heap.getUsed());
+        metrics.put("heapMaxBytes", heap.getMax());
+        return metrics;
+    }
+}
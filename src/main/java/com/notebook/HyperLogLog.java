@@ -0,0 +1,127 @@
+package com.notebook;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+// HyperLogLog cardinality sketch with 2^12 one-byte registers: about 1.6% standard
+// error in at most 4 KB, whatever the number of distinct values added. Sketches merge
+// by taking the register-wise maximum, so adding a value twice or merging overlapping
+// sketches never over-counts. Small sketches serialize sparsely.
+public class HyperLogLog {
+
+    static final int PRECISION = 12;
+    static final int REGISTERS = 1 << PRECISION;
+
+    private static final byte DENSE = 0;
+    private static final byte SPARSE = 1;
+
+    private final byte[] registers;
+
+    public HyperLogLog() {
+        this.registers = new byte[REGISTERS];
+    }
+
+    private HyperLogLog(byte[] registers) {
+        this.registers = registers;
+    }
+
+    public void add(String value) {
+        if (value == null) {
+            return;
+        }
+        long hash = hash64(value);
+        int index = (int) (hash >>> (64 - PRECISION));
+        // Rank of the first set bit in the remaining bits; the guard bit caps it
+        long rest = (hash << PRECISION) | (1L << (PRECISION - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(rest) + 1);
+        if (rank > registers[index]) {
+            registers[index] = rank;
+        }
+    }
+
+    public void merge(HyperLogLog other) {
+        for (int i = 0; i < REGISTERS; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    public long estimate() {
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double m = REGISTERS;
+        double alpha = 0.7213 / (1 + 1.079 / m);
+        double raw = alpha * m * m / sum;
+        if (raw <= 2.5 * m && zeros > 0) {
+            // Linear counting is more accurate for small cardinalities
+            return Math.round(m * Math.log(m / zeros));
+        }
+        return Math.round(raw);
+    }
+
+    public byte[] toBytes() {
+        int nonZero = 0;
+        for (byte register : registers) {
+            if (register != 0) {
+                nonZero++;
+            }
+        }
+        // Sparse entries take 3 bytes (index, rank); use them while that is smaller
+        if (nonZero * 3 < REGISTERS) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(2 + nonZero * 3);
+            out.write(SPARSE);
+            out.write(PRECISION);
+            for (int i = 0; i < REGISTERS; i++) {
+                if (registers[i] != 0) {
+                    out.write(i >>> 8);
+                    out.write(i);
+                    out.write(registers[i]);
+                }
+            }
+            return out.toByteArray();
+        }
+        byte[] bytes = new byte[2 + REGISTERS];
+        bytes[0] = DENSE;
+        bytes[1] = PRECISION;
+        System.arraycopy(registers, 0, bytes, 2, REGISTERS);
+        return bytes;
+    }
+
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        if (bytes.length < 2 || bytes[1] != PRECISION) {
+            throw new IllegalArgumentException("Unsupported sketch encoding");
+        }
+        byte[] registers = new byte[REGISTERS];
+        if (bytes[0] == DENSE) {
+            System.arraycopy(bytes, 2, registers, 0, REGISTERS);
+        } else {
+            for (int i = 2; i + 2 < bytes.length; i += 3) {
+                int index = ((bytes[i] & 0xFF) << 8) | (bytes[i + 1] & 0xFF);
+                registers[index] = bytes[i + 2];
+            }
+        }
+        return new HyperLogLog(registers);
+    }
+
+    // FNV-1a over the UTF-8 bytes, then the MurmurHash3 finalizer to spread the bits
+    static long hash64(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xFF;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,455 @@
+package com.notebook;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Resized, re-encoded variants of site images for responsive markup. A variant is
+// identified by source path, source content hash, width and format, so its URL never
+// changes meaning and can be cached as immutable. Variants are generated on first request
+// and kept on disk up to max-cache-bytes, evicting the least recently served. Concurrent
+// requests for a variant that is being generated wait for that one generation, and at
+// most max-concurrent images are decoded at a time, since a decoded image can take tens
+// of megabytes. Only the configured widths are produced, so URLs cannot fill the cache.
+// JPEG and PNG are always available; WebP when an ImageIO WebP writer is on the classpath.
+// Variants are handed out already open, under the same lock eviction deletes under, so a
+// variant evicted while it is being served stays readable until its response is written.
+@Service
+public class ImageDerivativeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageDerivativeService.class);
+
+    // Source image details, read once per path (the prepared static assets do not change)
+    public static final class Source {
+        final Path file;
+        final String hash;
+        final int width;
+        final int height;
+
+        Source(Path file, String hash, int width, int height) {
+            this.file = file;
+            this.hash = hash;
+            this.width = width;
+            this.height = height;
+        }
+
+        public String getHash() { return hash; }
+        public int getWidth() { return width; }
+    }
+
+    // An open variant file; the caller closes the stream
+    public static final class Variant {
+        final String name;
+        final InputStream in;
+        final long size;
+
+        Variant(String name, InputStream in, long size) {
+            this.name = name;
+            this.in = in;
+            this.size = size;
+        }
+
+        public String getName() { return name; }
+        public InputStream getInputStream() { return in; }
+        public long getSize() { return size; }
+    }
+
+    @Autowired
+    private StaticAssetPipeline staticAssetPipeline;
+
+    @Value("${image.derivatives.cache-dir:data/image-cache}")
+    private String cacheDir;
+
+    @Value("${image.derivatives.max-cache-bytes:268435456}")
+    private long maxCacheBytes;
+
+    @Value("${image.derivatives.widths:320,640,960,1280,1920}")
+    private String widthsSpec;
+
+    @Value("${image.derivatives.jpeg-quality:0.8}")
+    private float jpegQuality;
+
+    @Value("${image.derivatives.max-concurrent:2}")
+    private int maxConcurrent;
+
+    private Path root;
+    private final TreeSet<Integer> widths = new TreeSet<>();
+    private final List<String> formats = new ArrayList<>();
+    private Semaphore generationPermits;
+
+    private final Map<String, Source> sources = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Path>> inFlight = new ConcurrentHashMap<>();
+
+    // Cached variant file name -> size, least recently served first; guarded by itself
+    private final LinkedHashMap<String, Long> cached = new LinkedHashMap<>(64, 0.75f, true);
+    private long cachedBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong generated = new AtomicLong();
+    private final AtomicLong generateMillisTotal = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    @PostConstruct
+    public void init() throws IOException {
+        root = Paths.get(cacheDir).toAbsolutePath();
+        Files.createDirectories(root);
+        for (String width : widthsSpec.split(",")) {
+            if (!width.isBlank()) {
+                widths.add(Integer.parseInt(width.trim()));
+            }
+        }
+        for (String format : List.of("webp", "jpeg", "png")) {
+            if (ImageIO.getImageWritersByFormatName(format).hasNext()) {
+                formats.add(format);
+            }
+        }
+        generationPermits = new Semaphore(Math.max(1, maxConcurrent));
+
+        // Pick up variants from earlier runs, oldest first, then trim to the limit
+        List<Path> existing;
+        try (Stream<Path> files = Files.list(root)) {
+            existing = files.filter(Files::isRegularFile)
+                            .filter(file -> !file.getFileName().toString().endsWith(".tmp"))
+                            .sorted(Comparator.comparing(ImageDerivativeService::lastModified))
+                            .collect(Collectors.toList());
+        }
+        synchronized (cached) {
+            for (Path file : existing) {
+                long size = Files.size(file);
+                cached.put(file.getFileName().toString(), size);
+                cachedBytes += size;
+            }
+            evictIfOverLimit();
+        }
+        logger.info("Image derivatives: widths {}, formats {}, {} cached variants ({} bytes)",
+                    widths, formats, cached.size(), cachedBytes);
+    }
+
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    // Details of a static image such as "css/images/homebg.png", or null if there is none
+    public Source source(String path) {
+        String extension = extension(path);
+        if (!extension.equals("png") && !extension.equals("jpg") && !extension.equals("jpeg")) {
+            return null;
+        }
+        Source source = sources.get(path);
+        if (source == null) {
+            Path file = staticAssetPipeline.resolve(path);
+            if (file == null) {
+                return null;
+            }
+            try {
+                source = readSource(file);
+            } catch (IOException e) {
+                logger.warn("Cannot read image {}: {}", path, e.getMessage());
+                return null;
+            }
+            sources.put(path, source);
+        }
+        return source;
+    }
+
+    private static Source readSource(Path file) throws IOException {
+        String hash;
+        try (InputStream in = Files.newInputStream(file)) {
+            hash = DigestUtils.md5DigestAsHex(in);
+        }
+        // Dimensions come from the header; the pixels are only decoded to generate a variant
+        try (ImageInputStream in = ImageIO.createImageInputStream(file.toFile())) {
+            Iterator<ImageReader> readers = in != null ? ImageIO.getImageReaders(in) : null;
+            if (readers == null || !readers.hasNext()) {
+                throw new IOException("unsupported image format");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in);
+                return new Source(file, hash, reader.getWidth(0), reader.getHeight(0));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    public boolean supports(int width, String format) {
+        return widths.contains(width) && formats.contains(format);
+    }
+
+    // Preferred format for photos: WebP when it can be written, JPEG otherwise
+    public String preferredFormat() {
+        return formats.contains("webp") ? "webp" : "jpeg";
+    }
+
+    // URL of one variant; widths above the source's are served at the source width
+    public String url(String path, int width, String format) {
+        Source source = source(path);
+        if (source == null) {
+            return "/" + path;
+        }
+        return "/img/" + source.hash + "/" + width + "/" + format + "/" + path;
+    }
+
+    // srcset value listing every configured width up to the source width, for templates:
+    // th:attr="srcset=${@imageDerivativeService.srcset('css/images/homebg.png')}"
+    public String srcset(String path) {
+        Source source = source(path);
+        if (source == null) {
+            return "/" + path;
+        }
+        String format = preferredFormat();
+        List<String> candidates = new ArrayList<>();
+        for (int width : widths) {
+            if (width >= source.width) {
+                candidates.add(url(path, width, format) + " " + source.width + "w");
+                break;
+            }
+            candidates.add(url(path, width, format) + " " + width + "w");
+        }
+        return String.join(", ", candidates);
+    }
+
+    // Name of the variant file, which is also its ETag
+    public String variantName(Source source, int width, String format) {
+        return source.hash + "-" + Math.min(width, source.width) + "." + format;
+    }
+
+    // Opens the cached variant, generating it first if needed
+    public Variant variant(Source source, int width, String format) throws IOException {
+        int targetWidth = Math.min(width, source.width);
+        String name = variantName(source, width, format);
+        Path file = root.resolve(name);
+        Variant variant = openCached(name, file);
+        if (variant != null) {
+            hits.incrementAndGet();
+            return variant;
+        }
+
+        while (true) {
+            CompletableFuture<Path> mine = new CompletableFuture<>();
+            CompletableFuture<Path> running = inFlight.putIfAbsent(name, mine);
+            if (running != null) {
+                coalesced.incrementAndGet();
+                try {
+                    running.join();
+                } catch (CompletionException e) {
+                    throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+                }
+                // Generated, but a small cache may have evicted it again before we open it
+                variant = openCached(name, file);
+                if (variant != null) {
+                    return variant;
+                }
+                continue;
+            }
+
+            misses.incrementAndGet();
+            try {
+                // Another request may have finished generating it since the check above
+                variant = openCached(name, file);
+                if (variant == null) {
+                    variant = generate(source, targetWidth, format, file);
+                }
+                mine.complete(file);
+                return variant;
+            } catch (IOException | RuntimeException e) {
+                mine.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlight.remove(name, mine);
+            }
+        }
+    }
+
+    // The variant opened under the cached lock, or null if it is not cached
+    private Variant openCached(String name, Path file) throws IOException {
+        synchronized (cached) {
+            Long size = cached.get(name);
+            if (size == null || !Files.exists(file)) {
+                return null;
+            }
+            return new Variant(name, Files.newInputStream(file), size);
+        }
+    }
+
+    private Variant generate(Source source, int targetWidth, String format, Path file) throws IOException {
+        generationPermits.acquireUninterruptibly();
+        long start = System.currentTimeMillis();
+        try {
+            BufferedImage original = ImageIO.read(source.file.toFile());
+            if (original == null) {
+                throw new IOException("unsupported image format");
+            }
+            int targetHeight = Math.max(1, Math.round((float) original.getHeight() * targetWidth / original.getWidth()));
+            boolean alpha = !format.equals("jpeg") && original.getColorModel().hasAlpha();
+            BufferedImage resized = resize(original, targetWidth, targetHeight, alpha);
+
+            Path temp = Files.createTempFile(root, file.getFileName().toString(), ".tmp");
+            try {
+                write(resized, format, temp);
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } finally {
+            generationPermits.release();
+        }
+
+        long size = Files.size(file);
+        generated.incrementAndGet();
+        generateMillisTotal.addAndGet(System.currentTimeMillis() - start);
+        synchronized (cached) {
+            String name = file.getFileName().toString();
+            Long previous = cached.put(name, size);
+            cachedBytes += size - (previous != null ? previous : 0);
+            // Opened before eviction runs, which may delete it straight away if it is large
+            Variant variant = new Variant(name, Files.newInputStream(file), size);
+            evictIfOverLimit();
+            return variant;
+        }
+    }
+
+    // Halves the image until within 2x of the target, then scales once, which keeps
+    // bilinear downscaling from skipping pixels (aliasing) on large reductions
+    private static BufferedImage resize(BufferedImage image, int width, int height, boolean alpha) {
+        BufferedImage current = image;
+        int currentWidth = image.getWidth();
+        int currentHeight = image.getHeight();
+        do {
+            int nextWidth = Math.max(width, currentWidth / 2);
+            int nextHeight = Math.max(height, currentHeight / 2);
+            if (currentWidth <= width * 2) {
+                nextWidth = width;
+                nextHeight = height;
+            }
+            BufferedImage next = new BufferedImage(nextWidth, nextHeight,
+                                                   alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = next.createGraphics();
+            try {
+                if (!alpha) {
+                    // JPEG has no transparency; flatten onto white rather than black
+                    graphics.setColor(Color.WHITE);
+                    graphics.fillRect(0, 0, nextWidth, nextHeight);
+                }
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(current, 0, 0, nextWidth, nextHeight, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = next;
+            currentWidth = nextWidth;
+            currentHeight = nextHeight;
+        } while (currentWidth != width || currentHeight != height);
+        return current;
+    }
+
+    private void write(BufferedImage image, String format, Path target) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(format).next();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(target.toFile())) {
+            writer.setOutput(out);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (!format.equals("png") && param.canWriteCompressed()) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                if (param.getCompressionType() == null) {
+                    param.setCompressionType(param.getCompressionTypes()[0]);
+                }
+                param.setCompressionQuality(jpegQuality);
+            }
+            if (param.canWriteProgressive()) {
+                param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    // Caller holds the cached lock
+    private void evictIfOverLimit() {
+        Iterator<Map.Entry<String, Long>> eldest = cached.entrySet().iterator();
+        while (cachedBytes > maxCacheBytes && eldest.hasNext()) {
+            Map.Entry<String, Long> entry = eldest.next();
+            try {
+                Files.deleteIfExists(root.resolve(entry.getKey()));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            cachedBytes -= entry.getValue();
+            eldest.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    public String contentType(String format) {
+        return "image/" + format;
+    }
+
+    private static String extension(String path) {
+        int dot = path.lastIndexOf('.');
+        return dot < 0 ? "" : path.substring(dot + 1).toLowerCase(Locale.ROOT);
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        synchronized (cached) {
+            metrics.put("cachedVariants", cached.size());
+            metrics.put("cachedBytes", cachedBytes);
+        }
+        metrics.put("maxCacheBytes", maxCacheBytes);
+        metrics.put("formats", formats);
+        metrics.put("hits", hits.get());
+        metrics.put("misses", misses.get());
+        metrics.put("coalesced", coalesced.get());
+        metrics.put("generated", generated.get());
+        long count = generated.get();
+        metrics.put("avgGenerateMillis", count > 0 ? generateMillisTotal.get() / count : 0);
+        metrics.put("evictions", evictions.get());
+        return metrics;
+    }
+}
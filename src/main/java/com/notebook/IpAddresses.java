@@ -0,0 +1,199 @@
+package com.notebook;
+
+// Allocation-free parsing of IPv4/IPv6 literals into 128-bit values (two longs, IPv4 as
+// the mapped address ::ffff:a.b.c.d), shared by the geolocation lookup and the
+// trusted-proxy checks. java.net.InetAddress is avoided because it allocates and may
+// resolve host names.
+final class IpAddresses {
+
+    private static final ThreadLocal<int[]> GROUPS = ThreadLocal.withInitial(() -> new int[8]);
+
+    private IpAddresses() {
+    }
+
+    // Unsigned IPv4 value of s[from, to), or -1 if it is not a dotted quad
+    static long parseIpv4(CharSequence s, int from, int to) {
+        long value = 0;
+        int octets = 0;
+        int i = from;
+        while (octets < 4) {
+            int octet = 0;
+            int digits = 0;
+            while (i < to && s.charAt(i) >= '0' && s.charAt(i) <= '9' && digits < 3) {
+                octet = octet * 10 + (s.charAt(i) - '0');
+                i++;
+                digits++;
+            }
+            if (digits == 0 || octet > 255) {
+                return -1;
+            }
+            value = (value << 8) | octet;
+            octets++;
+            if (octets < 4) {
+                if (i >= to || s.charAt(i) != '.') {
+                    return -1;
+                }
+                i++;
+            }
+        }
+        return i == to ? value : -1;
+    }
+
+    // Parses an IPv6 literal in s[from, to) into out[0] (high) and out[1] (low bits)
+    static boolean parseIpv6(CharSequence s, int from, int to, long[] out) {
+        int[] groups = GROUPS.get();
+        int count = 0;
+        int gap = -1;
+        int i = from;
+        if (to - i >= 2 && s.charAt(i) == ':' && s.charAt(i + 1) == ':') {
+            gap = 0;
+            i += 2;
+        }
+        while (i < to) {
+            int start = i;
+            int value = 0;
+            int digits = 0;
+            int hex;
+            while (i < to && digits < 5 && (hex = Character.digit(s.charAt(i), 16)) >= 0) {
+                value = (value << 4) | hex;
+                i++;
+                digits++;
+            }
+            if (i < to && s.charAt(i) == '.') {
+                // Embedded IPv4 tail, e.g. ::ffff:192.0.2.1
+                long v4 = parseIpv4(s, start, to);
+                if (v4 < 0 || count > 6) {
+                    return false;
+                }
+                groups[count++] = (int) (v4 >>> 16);
+                groups[count++] = (int) (v4 & 0xFFFF);
+                i = to;
+                break;
+            }
+            if (digits == 0 || digits > 4 || count == 8) {
+                return false;
+            }
+            groups[count++] = value;
+            if (i == to) {
+                break;
+            }
+            if (s.charAt(i) != ':') {
+                return false;
+            }
+            i++;
+            if (i < to && s.charAt(i) == ':') {
+                if (gap >= 0) {
+                    return false;
+                }
+                gap = count;
+                i++;
+            } else if (i == to) {
+                return false;
+            }
+        }
+        if (gap < 0 ? count != 8 : count > 7) {
+            return false;
+        }
+
+        long hi = 0;
+        long lo = 0;
+        int zeros = 8 - count;
+        for (int k = 0; k < 8; k++) {
+            int group;
+            if (gap < 0 || k < gap) {
+                group = groups[k];
+            } else if (k < gap + zeros) {
+                group = 0;
+            } else {
+                group = groups[k - zeros];
+            }
+            if (k < 4) {
+                hi = (hi << 16) | group;
+            } else {
+                lo = (lo << 16) | group;
+            }
+        }
+        out[0] = hi;
+        out[1] = lo;
+        return true;
+    }
+
+    // Parses either kind of literal (an IPv6 zone id is ignored) into out
+    static boolean parse(CharSequence s, long[] out) {
+        int to = s.length();
+        for (int i = 0; i < to; i++) {
+            if (s.charAt(i) == ':') {
+                for (int j = i; j < to; j++) {
+                    if (s.charAt(j) == '%') {
+                        to = j;
+                        break;
+                    }
+                }
+                return parseIpv6(s, 0, to, out);
+            }
+        }
+        long v4 = parseIpv4(s, 0, to);
+        if (v4 < 0) {
+            return false;
+        }
+        out[0] = 0;
+        out[1] = 0xFFFF00000000L | v4;
+        return true;
+    }
+
+    static boolean isIpv4Mapped(long hi, long lo) {
+        return hi == 0 && (lo >>> 32) == 0xFFFFL;
+    }
+
+    // "addr" or "addr/prefix" as {startHi, startLo, endHi, endLo}; IPv4 prefixes count
+    // from the IPv4 address, so 10.0.0.0/8 covers ::ffff:10.0.0.0/104
+    static long[] parseCidr(String cidr) {
+        String text = cidr.trim();
+        int slash = text.indexOf('/');
+        String address = slash < 0 ? text : text.substring(0, slash);
+        long[] parsed = new long[2];
+        if (!parse(address, parsed)) {
+            throw new IllegalArgumentException("Invalid IP address in '" + cidr + "'");
+        }
+        boolean v4 = address.indexOf(':') < 0;
+        int prefix = v4 ? 32 : 128;
+        if (slash >= 0) {
+            prefix = Integer.parseInt(text.substring(slash + 1).trim());
+            if (prefix < 0 || prefix > (v4 ? 32 : 128)) {
+                throw new IllegalArgumentException("Invalid prefix length in '" + cidr + "'");
+            }
+        }
+        if (v4) {
+            prefix += 96;
+        }
+        long maskHi = prefix == 0 ? 0 : prefix >= 64 ? -1L : -1L << (64 - prefix);
+        long maskLo = prefix <= 64 ? 0 : -1L << (128 - prefix);
+        long startHi = parsed[0] & maskHi;
+        long startLo = parsed[1] & maskLo;
+        return new long[] { startHi, startLo, startHi | ~maskHi, startLo | ~maskLo };
+    }
+
+    static int compare(long hi1, long lo1, long hi2, long lo2) {
+        int c = Long.compareUnsigned(hi1, hi2);
+        return c != 0 ? c : Long.compareUnsigned(lo1, lo2);
+    }
+
+    // Strips brackets and a port from a forwarded address ("[2001:db8::1]:443",
+    // "192.0.2.1:8080"); returns null unless the rest is an IP literal
+    static String normalize(String entry, long[] scratch) {
+        String value = entry.trim();
+        if (value.startsWith("[")) {
+            int close = value.indexOf(']');
+            if (close < 0) {
+                return null;
+            }
+            value = value.substring(1, close);
+        } else {
+            int colon = value.indexOf(':');
+            if (colon >= 0 && colon == value.lastIndexOf(':') && value.indexOf('.') >= 0) {
+                value = value.substring(0, colon);
+            }
+        }
+        return parse(value, scratch) ? value : null;
+    }
+}
@@ -0,0 +1,194 @@
+package com.notebook;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Offline country/city lookup for visitor IPs from a GeoIpDatabase file. The database
+// is opened (or compiled first, for a .csv source) in the background after startup and
+// re-opened whenever the source file changes; lookups read whichever database is current
+// through a volatile reference, so a reload never blocks them. Replace the file by
+// moving a complete copy over it. Loopback and private addresses are reported as local.
+@Service
+public class IpGeolocationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IpGeolocationService.class);
+
+    private static final String UNKNOWN = "Unknown";
+
+    public static final class Location {
+        private final String country;
+        private final String city;
+
+        Location(String country, String city) {
+            this.country = country;
+            this.city = city;
+        }
+
+        public String getCountry() { return country; }
+        public String getCity() { return city; }
+    }
+
+    public static final Location LOCAL = new Location("Local", "Local Network");
+    public static final Location UNKNOWN_LOCATION = new Location(UNKNOWN, UNKNOWN);
+
+    // Loopback, private, link-local and unique-local ranges as {startHi, startLo, endHi, endLo}
+    private static final long[][] LOCAL_RANGES = {
+        IpAddresses.parseCidr("127.0.0.0/8"),
+        IpAddresses.parseCidr("10.0.0.0/8"),
+        IpAddresses.parseCidr("172.16.0.0/12"),
+        IpAddresses.parseCidr("192.168.0.0/16"),
+        IpAddresses.parseCidr("169.254.0.0/16"),
+        IpAddresses.parseCidr("::1/128"),
+        IpAddresses.parseCidr("fc00::/7"),
+        IpAddresses.parseCidr("fe80::/10"),
+    };
+
+    private static final ThreadLocal<long[]> SCRATCH = ThreadLocal.withInitial(() -> new long[2]);
+
+    // Loaded database and the Location objects for its entries
+    private static final class Snapshot {
+        final GeoIpDatabase database;
+        final Location[] locations;
+        final FileTime sourceModified;
+        final long sourceSize;
+        final LocalDateTime loadedAt;
+
+        Snapshot(GeoIpDatabase database, FileTime sourceModified, long sourceSize) {
+            this.database = database;
+            this.locations = new Location[database.locations()];
+            for (int i = 0; i < locations.length; i++) {
+                locations[i] = new Location(database.country(i), database.city(i));
+            }
+            this.sourceModified = sourceModified;
+            this.sourceSize = sourceSize;
+            this.loadedAt = LocalDateTime.now();
+        }
+    }
+
+    @Value("${visitor.geo.database:}")
+    private String databaseFile;
+
+    private volatile Snapshot snapshot;
+
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong located = new AtomicLong();
+    private final AtomicLong local = new AtomicLong();
+    private final AtomicLong reloads = new AtomicLong();
+    private volatile int skippedRanges;
+    private volatile long lastLoadMillis;
+
+    public Location lookup(String ipAddress) {
+        lookups.incrementAndGet();
+        long[] address = SCRATCH.get();
+        if (ipAddress == null || !IpAddresses.parse(ipAddress, address)) {
+            return UNKNOWN_LOCATION;
+        }
+        long hi = address[0];
+        long lo = address[1];
+        for (long[] range : LOCAL_RANGES) {
+            if (IpAddresses.compare(hi, lo, range[0], range[1]) >= 0 && IpAddresses.compare(hi, lo, range[2], range[3]) <= 0) {
+                local.incrementAndGet();
+                return LOCAL;
+            }
+        }
+
+        Snapshot current = snapshot;
+        if (current == null) {
+            return UNKNOWN_LOCATION;
+        }
+        int location = IpAddresses.isIpv4Mapped(hi, lo)
+                ? current.database.lookupV4(lo & 0xFFFFFFFFL)
+                : current.database.lookupV6(hi, lo);
+        if (location < 0) {
+            return UNKNOWN_LOCATION;
+        }
+        located.incrementAndGet();
+        return current.locations[location];
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        reloadIfChanged();
+    }
+
+    @Scheduled(initialDelayString = "${visitor.geo.reload-check-ms:60000}",
+               fixedDelayString = "${visitor.geo.reload-check-ms:60000}")
+    public void checkForUpdate() {
+        reloadIfChanged();
+    }
+
+    // Loads the database when the source file is new or changed; returns true if reloaded
+    public synchronized boolean reloadIfChanged() {
+        if (databaseFile == null || databaseFile.isBlank()) {
+            return false;
+        }
+        Path source = Paths.get(databaseFile).toAbsolutePath();
+        try {
+            if (!Files.exists(source)) {
+                logger.warn("Geolocation database {} not found", source);
+                return false;
+            }
+            FileTime modified = Files.getLastModifiedTime(source);
+            long size = Files.size(source);
+            Snapshot current = snapshot;
+            if (current != null && current.sourceModified.equals(modified) && current.sourceSize == size) {
+                return false;
+            }
+
+            long start = System.currentTimeMillis();
+            Path binary = source;
+            if (source.getFileName().toString().toLowerCase().endsWith(".csv")) {
+                binary = source.resolveSibling(source.getFileName() + ".bin");
+                if (!Files.exists(binary) || Files.getLastModifiedTime(binary).compareTo(modified) < 0) {
+                    skippedRanges = GeoIpDatabase.compile(source, binary);
+                    if (skippedRanges > 0) {
+                        logger.warn("Skipped {} overlapping ranges in {}", skippedRanges, source);
+                    }
+                }
+            }
+            Snapshot loaded = new Snapshot(GeoIpDatabase.open(binary), modified, size);
+            snapshot = loaded;
+            reloads.incrementAndGet();
+            lastLoadMillis = System.currentTimeMillis() - start;
+            logger.info("Loaded geolocation database {} ({} IPv4 / {} IPv6 ranges) in {} ms",
+                        source, loaded.database.v4Ranges(), loaded.database.v6Ranges(), lastLoadMillis);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            // Keep serving from the previous database
+            logger.error("Failed to load geolocation database {}: {}", source, e.getMessage());
+            return false;
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        Snapshot current = snapshot;
+        metrics.put("database", databaseFile);
+        metrics.put("loaded", current != null);
+        metrics.put("loadedAt", current != null ? current.loadedAt : null);
+        metrics.put("ipv4Ranges", current != null ? current.database.v4Ranges() : 0);
+        metrics.put("ipv6Ranges", current != null ? current.database.v6Ranges() : 0);
+        metrics.put("skippedRanges", skippedRanges);
+        metrics.put("reloads", reloads.get());
+        metrics.put("lastLoadMillis", lastLoadMillis);
+        metrics.put("lookups", lookups.get());
+        metrics.put("located", located.get());
+        metrics.put("local", local.get());
+        return metrics;
+    }
+}
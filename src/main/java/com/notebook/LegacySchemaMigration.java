@@ -0,0 +1,92 @@
+package com.notebook;
+
+import org.flywaydb.core.api.MigrationVersion;
+import org.flywaydb.core.api.migration.Context;
+import org.flywaydb.core.api.migration.JavaMigration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Locale;
+
+// Migration V2: brings contact_submissions up to date on databases that were created by
+// hibernate.ddl-auto before attachments moved to the AttachmentStore. V1 only creates
+// missing tables, so a table from that era can lack the attachment columns and the
+// admin list index. Done in Java because MySQL has no ADD COLUMN IF NOT EXISTS.
+@Component
+public class LegacySchemaMigration implements JavaMigration {
+
+    private static final Logger logger = LoggerFactory.getLogger(LegacySchemaMigration.class);
+
+    @Override
+    public MigrationVersion getVersion() {
+        return MigrationVersion.fromVersion("2");
+    }
+
+    @Override
+    public String getDescription() {
+        return "legacy contact_submissions columns";
+    }
+
+    @Override
+    public Integer getChecksum() {
+        return null;
+    }
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        return true;
+    }
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+        try (Statement statement = connection.createStatement()) {
+            if (!hasColumn(connection, "contact_submissions", "file_key")) {
+                logger.info("Adding contact_submissions.file_key");
+                statement.execute("ALTER TABLE contact_submissions ADD COLUMN file_key VARCHAR(64)");
+            }
+            if (!hasColumn(connection, "contact_submissions", "file_size")) {
+                logger.info("Adding contact_submissions.file_size");
+                statement.execute("ALTER TABLE contact_submissions ADD COLUMN file_size BIGINT");
+            }
+            if (!hasIndex(connection, "contact_submissions", "idx_submissions_submitted_at_id")) {
+                logger.info("Adding index idx_submissions_submitted_at_id");
+                statement.execute("CREATE INDEX idx_submissions_submitted_at_id ON contact_submissions (submitted_at, id)");
+            }
+        }
+    }
+
+    private static boolean hasColumn(Connection connection, String table, String column) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        for (String t : new String[] { table, table.toUpperCase(Locale.ROOT) }) {
+            try (ResultSet rs = metaData.getColumns(connection.getCatalog(), null, t, null)) {
+                while (rs.next()) {
+                    if (column.equalsIgnoreCase(rs.getString("COLUMN_NAME"))) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasIndex(Connection connection, String table, String index) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        for (String t : new String[] { table, table.toUpperCase(Locale.ROOT) }) {
+            try (ResultSet rs = metaData.getIndexInfo(connection.getCatalog(), null, t, false, false)) {
+                while (rs.next()) {
+                    if (index.equalsIgnoreCase(rs.getString("INDEX_NAME"))) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+}
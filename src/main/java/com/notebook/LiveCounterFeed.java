@@ -0,0 +1,297 @@
+package com.notebook;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Pushes dashboard counter changes to open admin pages over Server-Sent Events. Ingestion
+// only bumps in-memory sequences (visits as VisitorLogWriter stores them, submissions as
+// they commit); one ticker turns the sequences into a delta per client at most
+// max-events-per-second times a second, so open dashboards cost no database queries.
+// Each client has at most one send in flight, on a sender thread of its own: a slow client
+// simply skips ticks and gets everything it missed in its next event, and one whose write
+// has been stuck for stall-timeout-ms is dropped. A blocked write can only end with the
+// connector's socket write timeout, so the ticker never touches a stalled emitter itself
+// (SseEmitter holds its lock for the whole write); a full socket buffer thus never holds
+// up other dashboards. Deletions, recounts and a new day ask
+// the page to reload its totals from /admin/stats (a new day invalidates its snapshot
+// first).
+@Service
+public class LiveCounterFeed {
+
+    private static final Logger logger = LoggerFactory.getLogger(LiveCounterFeed.class);
+
+    private static final class Client {
+        final SseEmitter emitter;
+        // Sequence values included in the last event delivered to this client
+        long visits;
+        long submissions;
+        long submissionsWithFiles;
+        long resyncs;
+        long uniqueVisitorsToday = -1;
+        // Set while a send is queued or running; only the ticker sets it
+        volatile boolean busy;
+        volatile long busySinceNanos;
+
+        Client(SseEmitter emitter, long[] since) {
+            this.emitter = emitter;
+            this.visits = since[0];
+            this.submissions = since[1];
+            this.submissionsWithFiles = since[2];
+            this.resyncs = since[3];
+        }
+    }
+
+    @Autowired
+    private UniqueVisitorSketches uniqueVisitorSketches;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${admin.live.max-events-per-second:2}")
+    private int maxEventsPerSecond;
+
+    @Value("${admin.live.max-clients:50}")
+    private int maxClients;
+
+    @Value("${admin.live.stall-timeout-ms:10000}")
+    private long stallTimeoutMillis;
+
+    @Value("${admin.live.heartbeat-ms:15000}")
+    private long heartbeatMillis;
+
+    @Value("${admin.live.connection-timeout-ms:1800000}")
+    private long connectionTimeoutMillis;
+
+    private final AtomicLong visitSequence = new AtomicLong();
+    private final AtomicLong submissionSequence = new AtomicLong();
+    private final AtomicLong submissionWithFileSequence = new AtomicLong();
+    private final AtomicLong resyncSequence = new AtomicLong();
+
+    private final Set<Client> clients = ConcurrentHashMap.newKeySet();
+    private ScheduledExecutorService ticker;
+    private ExecutorService sender;
+
+    // Ticker state
+    private long lastUniqueAtVisit = -1;
+    private long uniqueVisitorsToday;
+    private LocalDate day = LocalDate.now();
+    private long lastHeartbeatNanos = System.nanoTime();
+
+    private final AtomicLong connected = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong eventsSent = new AtomicLong();
+    private final AtomicLong ticksSkippedBusy = new AtomicLong();
+    private final AtomicLong stalledDropped = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "live-feed-ticker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Grows to one thread per connected client (each has at most one send in flight),
+        // plus any dropped clients whose writes have not timed out yet
+        AtomicInteger threadNumber = new AtomicInteger();
+        sender = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "live-feed-send-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = 1000 / Math.max(1, Math.min(maxEventsPerSecond, 1000));
+        ticker.scheduleAtFixedRate(this::tick, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ticker.shutdownNow();
+        sender.shutdownNow();
+        clients.forEach(client -> client.emitter.complete());
+    }
+
+    public void recordVisits(int count) {
+        visitSequence.addAndGet(count);
+    }
+
+    @EventListener
+    public void onSubmissionsChanged(SubmissionsChangedEvent event) {
+        if (event.getChange() == SubmissionsChangedEvent.Change.CREATED) {
+            submissionSequence.incrementAndGet();
+            if (event.isWithFile()) {
+                submissionWithFileSequence.incrementAndGet();
+            }
+        } else {
+            resyncSequence.incrementAndGet();
+        }
+    }
+
+    // Sequence values a page's totals were computed at, as "visits-submissions-withFiles-resyncs"
+    public String currentSequence() {
+        return visitSequence.get() + "-" + submissionSequence.get() + "-"
+             + submissionWithFileSequence.get() + "-" + resyncSequence.get();
+    }
+
+    // Returns null when the client limit is reached. since is a currentSequence() value from
+    // when the page's totals were computed; the first event then covers what happened since
+    public SseEmitter subscribe(String since) {
+        if (clients.size() >= maxClients) {
+            rejected.incrementAndGet();
+            return null;
+        }
+        SseEmitter emitter = new SseEmitter(connectionTimeoutMillis);
+        Client client = new Client(emitter, parseSequence(since));
+        emitter.onCompletion(() -> clients.remove(client));
+        emitter.onTimeout(() -> clients.remove(client));
+        emitter.onError(error -> clients.remove(client));
+        clients.add(client);
+        connected.incrementAndGet();
+        return emitter;
+    }
+
+    private long[] parseSequence(String since) {
+        long[] current = {
+            visitSequence.get(), submissionSequence.get(), submissionWithFileSequence.get(), resyncSequence.get()
+        };
+        if (since == null) {
+            return current;
+        }
+        String[] parts = since.split("-");
+        if (parts.length != current.length) {
+            return current;
+        }
+        long[] parsed = new long[current.length];
+        try {
+            for (int i = 0; i < parts.length; i++) {
+                // A value from before a restart is ahead of the sequence; start from now
+                parsed[i] = Long.parseLong(parts[i]);
+                if (parsed[i] < 0 || parsed[i] > current[i]) {
+                    return current;
+                }
+            }
+        } catch (NumberFormatException e) {
+            return current;
+        }
+        return parsed;
+    }
+
+    private void tick() {
+        try {
+            LocalDate today = LocalDate.now();
+            if (!today.equals(day)) {
+                day = today;
+                // Listeners run here, so the snapshot is invalidated before pages reload it
+                eventPublisher.publishEvent(new DayChangedEvent(today));
+                resyncSequence.incrementAndGet();
+            }
+            if (clients.isEmpty()) {
+                return;
+            }
+            long visits = visitSequence.get();
+            long submissions = submissionSequence.get();
+            long withFiles = submissionWithFileSequence.get();
+            long resyncs = resyncSequence.get();
+            // Once per tick at most, and only when visits were stored since the last estimate
+            if (visits != lastUniqueAtVisit) {
+                uniqueVisitorsToday = uniqueVisitorSketches.estimateVisitorsToday();
+                lastUniqueAtVisit = visits;
+            }
+            long unique = uniqueVisitorsToday;
+
+            long now = System.nanoTime();
+            boolean heartbeat = now - lastHeartbeatNanos >= TimeUnit.MILLISECONDS.toNanos(heartbeatMillis);
+            if (heartbeat) {
+                lastHeartbeatNanos = now;
+            }
+            for (Client client : clients) {
+                if (client.busy) {
+                    if (now - client.busySinceNanos > TimeUnit.MILLISECONDS.toNanos(stallTimeoutMillis)) {
+                        stalledDropped.incrementAndGet();
+                        clients.remove(client);
+                        // Blocks until the stuck write gives up, so not on the ticker
+                        sender.execute(client.emitter::complete);
+                    } else {
+                        ticksSkippedBusy.incrementAndGet();
+                    }
+                    continue;
+                }
+                boolean changed = client.visits != visits || client.submissions != submissions
+                    || client.submissionsWithFiles != withFiles || client.resyncs != resyncs
+                    || client.uniqueVisitorsToday != unique;
+                if (!changed && !heartbeat) {
+                    continue;
+                }
+                client.busy = true;
+                client.busySinceNanos = now;
+                sender.execute(() -> send(client, changed, visits, submissions, withFiles, resyncs, unique));
+            }
+        } catch (RuntimeException e) {
+            logger.error("Live feed tick failed: {}", e.getMessage());
+        }
+    }
+
+    private void send(Client client, boolean changed, long visits, long submissions, long withFiles,
+                      long resyncs, long unique) {
+        try {
+            if (changed) {
+                Map<String, Object> delta = new LinkedHashMap<>();
+                delta.put("visits", visits - client.visits);
+                delta.put("submissions", submissions - client.submissions);
+                delta.put("submissionsWithFiles", withFiles - client.submissionsWithFiles);
+                delta.put("uniqueVisitorsToday", unique);
+                delta.put("resync", resyncs != client.resyncs);
+                client.emitter.send(SseEmitter.event().name("counters").data(delta, MediaType.APPLICATION_JSON));
+                client.visits = visits;
+                client.submissions = submissions;
+                client.submissionsWithFiles = withFiles;
+                client.resyncs = resyncs;
+                client.uniqueVisitorsToday = unique;
+                eventsSent.incrementAndGet();
+            } else {
+                // Keeps proxies from closing an idle stream and detects departed clients
+                client.emitter.send(SseEmitter.event().comment("heartbeat"));
+            }
+        } catch (IOException | IllegalStateException e) {
+            clients.remove(client);
+            client.emitter.completeWithError(e);
+        } finally {
+            client.busy = false;
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("clients", clients.size());
+        metrics.put("maxClients", maxClients);
+        metrics.put("maxEventsPerSecond", maxEventsPerSecond);
+        metrics.put("connected", connected.get());
+        metrics.put("rejected", rejected.get());
+        metrics.put("eventsSent", eventsSent.get());
+        metrics.put("ticksSkippedBusy", ticksSkippedBusy.get());
+        metrics.put("stalledDropped", stalledDropped.get());
+        metrics.put("visitSequence", visitSequence.get());
+        metrics.put("submissionSequence", submissionSequence.get());
+        return metrics;
+    }
+}
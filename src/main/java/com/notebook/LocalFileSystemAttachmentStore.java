@@ -0,0 +1,147 @@
+package com.notebook;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Stores attachments as files named by their SHA-256, fanned out into two levels of
+// directories (ab/cd/abcd...). Uploads are written to a temp file first and moved into
+// place atomically, so readers never see partial files and duplicates are discarded.
+// A file's modification time is when its content was last stored; moving a file into
+// place and deleting it are serialized per key, through a fixed set of lock stripes.
+@Component
+@ConditionalOnProperty(name = "attachments.store.type", havingValue = "local", matchIfMissing = true)
+public class LocalFileSystemAttachmentStore implements AttachmentStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalFileSystemAttachmentStore.class);
+
+    private static final Pattern KEY_PATTERN = Pattern.compile("[0-9a-f]{64}");
+
+    private static final int LOCK_STRIPES = 64;
+
+    @Value("${attachments.store.local.root:data/attachments}")
+    private String rootDirectory;
+
+    private Path root;
+    private Path tmp;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    public LocalFileSystemAttachmentStore() {
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        root = Paths.get(rootDirectory).toAbsolutePath().normalize();
+        tmp = root.resolve("tmp");
+        Files.createDirectories(tmp);
+        logger.info("Attachment store at {}", root);
+    }
+
+    @Override
+    public StoredAttachment put(InputStream content) throws IOException {
+        MessageDigest digest = newDigest();
+        Path tempFile = Files.createTempFile(tmp, "upload-", ".part");
+        long size = 0;
+        try {
+            try (OutputStream out = Files.newOutputStream(tempFile)) {
+                byte[] buffer = new byte[COPY_BUFFER_SIZE];
+                int n;
+                while ((n = content.read(buffer)) != -1) {
+                    digest.update(buffer, 0, n);
+                    out.write(buffer, 0, n);
+                    size += n;
+                }
+            }
+
+            String key = HexFormat.of().formatHex(digest.digest());
+            Path target = pathFor(key);
+            Files.createDirectories(target.getParent());
+            synchronized (lockFor(key)) {
+                try {
+                    Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE);
+                } catch (FileAlreadyExistsException e) {
+                    // Same content already stored; mark it as stored now
+                    logger.debug("Attachment {} already stored, reusing it", key);
+                    Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+                }
+                if (Files.exists(target) && Files.size(target) == size) {
+                    return new StoredAttachment(key, size);
+                }
+            }
+            throw new IOException("Stored attachment " + key + " does not match the uploaded size");
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    @Override
+    public Resource open(String key) {
+        return new FileSystemResource(pathFor(key));
+    }
+
+    @Override
+    public List<String> keysStoredBefore(Instant cutoff) throws IOException {
+        FileTime before = FileTime.from(cutoff);
+        try (Stream<Path> files = Files.find(root, 3, (path, attributes) ->
+                attributes.isRegularFile() && attributes.lastModifiedTime().compareTo(before) < 0
+                && KEY_PATTERN.matcher(path.getFileName().toString()).matches())) {
+            return files.map(path -> path.getFileName().toString()).collect(Collectors.toList());
+        }
+    }
+
+    @Override
+    public boolean deleteIfStoredBefore(String key, Instant cutoff) throws IOException {
+        Path path = pathFor(key);
+        synchronized (lockFor(key)) {
+            if (!Files.exists(path) || Files.getLastModifiedTime(path).compareTo(FileTime.from(cutoff)) >= 0) {
+                return false;
+            }
+            return Files.deleteIfExists(path);
+        }
+    }
+
+    private Object lockFor(String key) {
+        return locks[Integer.parseInt(key.substring(0, 2), 16) % LOCK_STRIPES];
+    }
+
+    private Path pathFor(String key) {
+        if (key == null || !KEY_PATTERN.matcher(key).matches()) {
+            throw new IllegalArgumentException("Invalid attachment key: " + key);
+        }
+        return root.resolve(key.substring(0, 2)).resolve(key.substring(2, 4)).resolve(key);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.notebook;
+
+// The deadline of the dashboard query running on this thread, for waits that no JDBC
+// statement timeout covers (e.g. the visitor archive's parallel segment scans). Threads
+// outside AnalyticsQueryExecutor have none and wait without a limit.
+public final class QueryDeadline {
+
+    private static final ThreadLocal<Long> DEADLINE_NANOS = new ThreadLocal<>();
+
+    private QueryDeadline() {
+    }
+
+    static void set(long deadlineNanos) {
+        DEADLINE_NANOS.set(deadlineNanos);
+    }
+
+    static void clear() {
+        DEADLINE_NANOS.remove();
+    }
+
+    // Nanoseconds left (at most 0 once passed), or Long.MAX_VALUE without a deadline
+    public static long remainingNanos() {
+        Long deadline = DEADLINE_NANOS.get();
+        return deadline == null ? Long.MAX_VALUE : deadline - System.nanoTime();
+    }
+}
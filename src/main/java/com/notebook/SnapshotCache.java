@@ -0,0 +1,180 @@
+package com.notebook;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+// Caches expensive computed values per key for ttlMillis. Concurrent callers that miss
+// share one in-flight computation per key (single-flight) instead of each running it.
+// Once a value is older than refreshAfterMillis, the next caller still gets it but a
+// background refresh starts, so busy keys rarely expire. invalidate() marks everything
+// stale, including computations already running, so callers never see pre-change data
+// afterwards. If a refresh fails, the previous value is served until the next attempt.
+// Values rejected by the reusable predicate (e.g. partial results) are handed to the
+// callers that waited for them but are never served from the cache.
+final class SnapshotCache<K, V> {
+
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotCache.class);
+
+    static final class Snapshot<V> {
+        private final V value;
+        private final long computedAtMillis;
+        private final long generation;
+        private final boolean reusable;
+
+        Snapshot(V value, long computedAtMillis, long generation, boolean reusable) {
+            this.value = value;
+            this.computedAtMillis = computedAtMillis;
+            this.generation = generation;
+            this.reusable = reusable;
+        }
+
+        V getValue() { return value; }
+        long getComputedAtMillis() { return computedAtMillis; }
+        long getAgeMillis() { return System.currentTimeMillis() - computedAtMillis; }
+    }
+
+    private final class Entry {
+        volatile Snapshot<V> snapshot;
+        // Guarded by this entry
+        CompletableFuture<Snapshot<V>> inFlight;
+        long inFlightGeneration;
+    }
+
+    private final String name;
+    private final Function<K, V> loader;
+    private final Predicate<V> reusable;
+    private final Executor executor;
+    private final long ttlMillis;
+    private final long refreshAfterMillis;
+    private final int maxKeys;
+
+    private final Map<K, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong computations = new AtomicLong();
+    private final AtomicLong backgroundRefreshes = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    SnapshotCache(String name, Function<K, V> loader, Predicate<V> reusable, Executor executor,
+                  long ttlMillis, long refreshAfterMillis, int maxKeys) {
+        this.name = name;
+        this.loader = loader;
+        this.reusable = reusable;
+        this.executor = executor;
+        this.ttlMillis = ttlMillis;
+        this.refreshAfterMillis = Math.min(refreshAfterMillis, ttlMillis);
+        this.maxKeys = maxKeys;
+    }
+
+    Snapshot<V> get(K key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            evictIfFull();
+            entry = entries.computeIfAbsent(key, k -> new Entry());
+        }
+        long current = generation.get();
+        Snapshot<V> snapshot = entry.snapshot;
+        if (snapshot != null && snapshot.reusable && snapshot.generation == current) {
+            long age = snapshot.getAgeMillis();
+            if (age < ttlMillis) {
+                hits.incrementAndGet();
+                if (age >= refreshAfterMillis) {
+                    if (refresh(entry, key, current, true) != null) {
+                        backgroundRefreshes.incrementAndGet();
+                    }
+                }
+                return snapshot;
+            }
+        }
+
+        misses.incrementAndGet();
+        try {
+            return refresh(entry, key, current, false).join();
+        } catch (CompletionException e) {
+            if (snapshot != null) {
+                return snapshot;
+            }
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+    }
+
+    // Starts a computation for the generation unless one is already running; when
+    // onlyIfIdle is set, returns null instead of joining a running one
+    private CompletableFuture<Snapshot<V>> refresh(Entry entry, K key, long forGeneration, boolean onlyIfIdle) {
+        synchronized (entry) {
+            if (entry.inFlight != null && entry.inFlightGeneration >= forGeneration) {
+                if (onlyIfIdle) {
+                    return null;
+                }
+                coalesced.incrementAndGet();
+                return entry.inFlight;
+            }
+            computations.incrementAndGet();
+            CompletableFuture<Snapshot<V>> future = CompletableFuture.supplyAsync(() -> {
+                V value = loader.apply(key);
+                return new Snapshot<>(value, System.currentTimeMillis(), forGeneration, reusable.test(value));
+            }, executor);
+            entry.inFlight = future;
+            entry.inFlightGeneration = forGeneration;
+            future.whenComplete((snapshot, error) -> {
+                synchronized (entry) {
+                    if (entry.inFlight == future) {
+                        entry.inFlight = null;
+                    }
+                    if (snapshot != null && (entry.snapshot == null || entry.snapshot.generation <= snapshot.generation)) {
+                        entry.snapshot = snapshot;
+                    }
+                }
+                if (error != null) {
+                    failures.incrementAndGet();
+                    logger.error("Refreshing {} snapshot for {} failed: {}", name, key, error.getMessage());
+                }
+            });
+            return future;
+        }
+    }
+
+    void invalidate() {
+        generation.incrementAndGet();
+        invalidations.incrementAndGet();
+    }
+
+    // Drops the key whose snapshot is oldest; keys are caller-chosen (e.g. date ranges)
+    private void evictIfFull() {
+        if (entries.size() < maxKeys) {
+            return;
+        }
+        entries.entrySet().stream()
+            .min(Comparator.comparingLong(e -> e.getValue().snapshot != null ? e.getValue().snapshot.computedAtMillis : 0))
+            .ifPresent(oldest -> entries.remove(oldest.getKey()));
+    }
+
+    Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("keys", entries.size());
+        metrics.put("ttlMillis", ttlMillis);
+        metrics.put("hits", hits.get());
+        metrics.put("misses", misses.get());
+        metrics.put("coalesced", coalesced.get());
+        metrics.put("computations", computations.get());
+        metrics.put("backgroundRefreshes", backgroundRefreshes.get());
+        metrics.put("invalidations", invalidations.get());
+        metrics.put("failures", failures.get());
+        return metrics;
+    }
+}
@@ -0,0 +1,195 @@
+package com.notebook;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+// Prepares classpath:/static for the versioned resource chain in WebConfig. At startup the
+// assets are copied to output-dir, relative url(...) references in stylesheets are rewritten
+// to their content-hashed names (so images referenced from CSS are immutable too), and
+// compressible files get a .gz sibling when that is smaller. Brotli (.br) variants cannot be
+// produced without a native encoder; any shipped next to an asset are copied and served.
+@Component
+public class StaticAssetPipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(StaticAssetPipeline.class);
+
+    private static final String STATIC_ROOT = "static/";
+    private static final String MARKER = ".static-assets";
+    private static final Set<String> COMPRESSIBLE = Set.of("css", "js", "svg", "html", "txt", "json", "xml", "map");
+    private static final Pattern CSS_URL = Pattern.compile("url\\(\\s*(['\"]?)([^'\")]+)\\1\\s*\\)");
+
+    @Value("${static.assets.output-dir:data/static-assets}")
+    private String outputDir;
+
+    @Value("${static.assets.gzip-min-bytes:512}")
+    private int gzipMinBytes;
+
+    private Path root;
+    private int files;
+    private int gzipped;
+    private long bytes;
+    private long gzipBytes;
+    private long buildMillis;
+
+    @PostConstruct
+    public void build() throws IOException {
+        long start = System.currentTimeMillis();
+        root = Paths.get(outputDir).toAbsolutePath();
+        clean();
+        Files.createDirectories(root);
+        Files.writeString(root.resolve(MARKER), "Generated from classpath:/static at startup; safe to delete\n");
+
+        Map<String, Resource> assets = new LinkedHashMap<>();
+        for (Resource resource : new PathMatchingResourcePatternResolver().getResources("classpath*:/" + STATIC_ROOT + "**")) {
+            String url = resource.getURL().toString();
+            int index = url.lastIndexOf("/" + STATIC_ROOT);
+            if (resource.isReadable() && !url.endsWith("/") && index >= 0) {
+                assets.putIfAbsent(url.substring(index + STATIC_ROOT.length() + 1), resource);
+            }
+        }
+
+        // Stylesheets last, so the files they reference are already in place to be hashed
+        List<String> stylesheets = new ArrayList<>();
+        for (Map.Entry<String, Resource> asset : assets.entrySet()) {
+            if (asset.getKey().endsWith(".css")) {
+                stylesheets.add(asset.getKey());
+                continue;
+            }
+            try (InputStream in = asset.getValue().getInputStream()) {
+                write(asset.getKey(), in.readAllBytes());
+            }
+        }
+        for (String path : stylesheets) {
+            try (InputStream in = assets.get(path).getInputStream()) {
+                String css = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+                write(path, rewriteUrls(path, css).getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        buildMillis = System.currentTimeMillis() - start;
+        logger.info("Prepared {} static assets ({} gzipped) in {} in {} ms", files, gzipped, root, buildMillis);
+    }
+
+    private void clean() throws IOException {
+        // Only remove a directory this pipeline created
+        if (!Files.exists(root.resolve(MARKER))) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.delete(path);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    private void write(String path, byte[] content) throws IOException {
+        Path target = root.resolve(path);
+        Files.createDirectories(target.getParent());
+        Files.write(target, content);
+        files++;
+        bytes += content.length;
+
+        String extension = path.substring(path.lastIndexOf('.') + 1).toLowerCase();
+        if (content.length >= gzipMinBytes && COMPRESSIBLE.contains(extension)) {
+            byte[] compressed = gzip(content);
+            if (compressed.length < content.length) {
+                Files.write(target.resolveSibling(target.getFileName() + ".gz"), compressed);
+                gzipped++;
+                gzipBytes += compressed.length;
+            }
+        }
+    }
+
+    private static byte[] gzip(byte[] content) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(content.length / 3);
+        try (OutputStream out = new GZIPOutputStream(buffer) { { def.setLevel(Deflater.BEST_COMPRESSION); } }) {
+            out.write(content);
+        }
+        return buffer.toByteArray();
+    }
+
+    // Points relative url(...) references at "name-<md5>.ext", the ContentVersionStrategy form
+    private String rewriteUrls(String stylesheet, String css) throws IOException {
+        Path base = root.resolve(stylesheet).getParent();
+        Matcher matcher = CSS_URL.matcher(css);
+        StringBuilder result = new StringBuilder();
+        while (matcher.find()) {
+            String url = matcher.group(2).trim();
+            String replacement = matcher.group();
+            int query = indexOfAny(url, '?', '#');
+            String path = query >= 0 ? url.substring(0, query) : url;
+            boolean relative = !url.startsWith("/") && !url.startsWith("data:") && !url.contains("://") && !url.startsWith("#");
+            Path referenced = relative ? base.resolve(path).normalize() : null;
+            int dot = path.lastIndexOf('.');
+            if (relative && dot > path.lastIndexOf('/') && referenced.startsWith(root) && Files.isRegularFile(referenced)) {
+                String hash = DigestUtils.md5DigestAsHex(Files.readAllBytes(referenced));
+                String versioned = path.substring(0, dot) + "-" + hash + path.substring(dot)
+                                 + (query >= 0 ? url.substring(query) : "");
+                replacement = "url(" + matcher.group(1) + versioned + matcher.group(1) + ")";
+            }
+            matcher.appendReplacement(result, Matcher.quoteReplacement(replacement));
+        }
+        matcher.appendTail(result);
+        return result.toString();
+    }
+
+    private static int indexOfAny(String value, char first, char second) {
+        int a = value.indexOf(first);
+        int b = value.indexOf(second);
+        return a < 0 ? b : b < 0 ? a : Math.min(a, b);
+    }
+
+    // The prepared copy of a static asset ("css/images/a.png"), or null if there is none
+    public Path resolve(String path) {
+        Path file = root.resolve(path).normalize();
+        return file.startsWith(root) && Files.isRegularFile(file) ? file : null;
+    }
+
+    // Resource location for the prepared assets of one top-level static directory
+    public String location(String directory) {
+        String uri = root.resolve(directory).toUri().toString();
+        return uri.endsWith("/") ? uri : uri + "/";
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("outputDir", root.toString());
+        metrics.put("files", files);
+        metrics.put("bytes", bytes);
+        metrics.put("gzipped", gzipped);
+        metrics.put("gzipBytes", gzipBytes);
+        metrics.put("buildMillis", buildMillis);
+        return metrics;
+    }
+}
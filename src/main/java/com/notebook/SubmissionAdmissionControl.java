@@ -0,0 +1,178 @@
+package com.notebook;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Admission control for contact form submissions: a token bucket per client and a global
+// limit on submissions in flight. Each bucket is a single AtomicLong in GCRA form (the
+// "theoretical arrival time" of the next token), updated with CAS, and the buckets live in
+// a ConcurrentHashMap, so there is no lock to contend on. IPv6 clients are bucketed by /64,
+// since a single host usually owns the whole prefix. A bucket whose arrival time has
+// passed is full again and equivalent to no bucket, which is what the sweep evicts;
+// max-clients bounds the table in between.
+@Component
+public class SubmissionAdmissionControl {
+
+    public enum Decision { ADMITTED, TOO_LARGE, BUSY, TOO_MANY_CLIENTS, RATE_LIMITED }
+
+    @Value("${contact.admission.burst:5}")
+    private int burst;
+
+    @Value("${contact.admission.refill-seconds:60}")
+    private long refillSeconds;
+
+    @Value("${contact.admission.max-in-flight:4}")
+    private int maxInFlight;
+
+    @Value("${contact.admission.max-clients:100000}")
+    private int maxClients;
+
+    @Value("${spring.servlet.multipart.max-request-size:10MB}")
+    private DataSize maxRequestSize;
+
+    private static final long FORCED_SWEEP_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong lastForcedSweep = new AtomicLong(System.nanoTime() - FORCED_SWEEP_NANOS);
+    private Semaphore permits;
+    private long intervalNanos;
+    private long toleranceNanos;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejectedTooLarge = new LongAdder();
+    private final LongAdder rejectedBusy = new LongAdder();
+    private final LongAdder rejectedTooManyClients = new LongAdder();
+    private final LongAdder rejectedRateLimited = new LongAdder();
+    private final AtomicLong evicted = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        permits = new Semaphore(Math.max(1, maxInFlight));
+        intervalNanos = TimeUnit.SECONDS.toNanos(Math.max(1, refillSeconds));
+        toleranceNanos = intervalNanos * (Math.max(1, burst) - 1);
+    }
+
+    // Decides on a submission from its headers alone, before the body is read. An
+    // ADMITTED submission holds an in-flight permit until release() is called
+    public Decision admit(String clientAddress, long contentLength) {
+        if (contentLength > maxRequestSize.toBytes()) {
+            rejectedTooLarge.increment();
+            return Decision.TOO_LARGE;
+        }
+        if (!permits.tryAcquire()) {
+            rejectedBusy.increment();
+            return Decision.BUSY;
+        }
+
+        Decision decision = take(clientKey(clientAddress), System.nanoTime());
+        if (decision != Decision.ADMITTED) {
+            permits.release();
+            (decision == Decision.RATE_LIMITED ? rejectedRateLimited : rejectedTooManyClients).increment();
+            return decision;
+        }
+        admitted.increment();
+        peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        return decision;
+    }
+
+    public void release() {
+        inFlight.decrementAndGet();
+        permits.release();
+    }
+
+    private Decision take(String key, long now) {
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) {
+            if (buckets.size() >= maxClients) {
+                // One forced sweep per second at most, so a flood of new addresses cannot
+                // turn every request into a scan of the table
+                long last = lastForcedSweep.get();
+                if (now - last > FORCED_SWEEP_NANOS && lastForcedSweep.compareAndSet(last, now)) {
+                    evictIdle(now);
+                }
+                if (buckets.size() >= maxClients) {
+                    return Decision.TOO_MANY_CLIENTS;
+                }
+            }
+            bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+        }
+        while (true) {
+            long arrival = bucket.get();
+            long start = arrival - now > 0 ? arrival : now;
+            if (start - now > toleranceNanos) {
+                return Decision.RATE_LIMITED;
+            }
+            if (bucket.compareAndSet(arrival, start + intervalNanos)) {
+                return Decision.ADMITTED;
+            }
+        }
+    }
+
+    // Seconds until the client's next token, for Retry-After
+    public long retryAfterSeconds(String clientAddress) {
+        AtomicLong bucket = buckets.get(clientKey(clientAddress));
+        long wait = bucket == null ? 0 : bucket.get() - toleranceNanos - System.nanoTime();
+        return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(wait) + 1);
+    }
+
+    private static String clientKey(String address) {
+        long[] parsed = new long[2];
+        if (address == null || !IpAddresses.parse(address, parsed)) {
+            return String.valueOf(address);
+        }
+        if (IpAddresses.isIpv4Mapped(parsed[0], parsed[1])) {
+            return address;
+        }
+        return Long.toHexString(parsed[0]) + "::/64";
+    }
+
+    @Scheduled(initialDelayString = "${contact.admission.sweep-interval-ms:60000}",
+               fixedDelayString = "${contact.admission.sweep-interval-ms:60000}")
+    public void sweep() {
+        evictIdle(System.nanoTime());
+    }
+
+    private int evictIdle(long now) {
+        int removed = 0;
+        for (Map.Entry<String, AtomicLong> entry : buckets.entrySet()) {
+            // A request racing this removal may still take from the detached bucket; that
+            // costs at most one token of accuracy for a client that was idle anyway
+            if (entry.getValue().get() - now <= 0 && buckets.remove(entry.getKey(), entry.getValue())) {
+                removed++;
+            }
+        }
+        evicted.addAndGet(removed);
+        return removed;
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("burst", burst);
+        metrics.put("refillSeconds", refillSeconds);
+        metrics.put("maxInFlight", maxInFlight);
+        metrics.put("inFlight", inFlight.get());
+        metrics.put("peakInFlight", peakInFlight.get());
+        metrics.put("trackedClients", buckets.size());
+        metrics.put("evicted", evicted.get());
+        metrics.put("admitted", admitted.sum());
+        metrics.put("rejectedRateLimited", rejectedRateLimited.sum());
+        metrics.put("rejectedBusy", rejectedBusy.sum());
+        metrics.put("rejectedTooLarge", rejectedTooLarge.sum());
+        metrics.put("rejectedTooManyClients", rejectedTooManyClients.sum());
+        return metrics;
+    }
+}
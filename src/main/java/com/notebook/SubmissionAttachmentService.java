@@ -0,0 +1,129 @@
+package com.notebook;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Looks up contact form attachments by submission and hands out their stored content.
+// Only the attachment columns are read; the bytes come from the AttachmentStore.
+// Stored files no submission references are removed by a periodic sweep rather than
+// when a submission goes: an identical upload may be reusing the same content-addressed
+// file before its own submission commits. Only content last stored more than grace-ms
+// ago is deleted, so the grace period must exceed the time from upload to commit.
+@Service
+public class SubmissionAttachmentService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SubmissionAttachmentService.class);
+
+    private static final String METADATA_SQL =
+        "SELECT file_name, file_type, file_key, file_size FROM contact_submissions " +
+        "WHERE id = ? AND file_key IS NOT NULL";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AttachmentStore attachmentStore;
+
+    @Value("${attachments.orphan-sweep.grace-ms:3600000}")
+    private long graceMillis;
+
+    private final AtomicLong sweeps = new AtomicLong();
+    private final AtomicLong orphansDeleted = new AtomicLong();
+    private volatile LocalDateTime lastSweepAt;
+
+    public static class AttachmentInfo {
+        private final Long submissionId;
+        private final String fileName;
+        private final String fileType;
+        private final String fileKey;
+        private final long size;
+
+        AttachmentInfo(Long submissionId, String fileName, String fileType, String fileKey, long size) {
+            this.submissionId = submissionId;
+            this.fileName = fileName;
+            this.fileType = fileType;
+            this.fileKey = fileKey;
+            this.size = size;
+        }
+
+        public Long getSubmissionId() { return submissionId; }
+        public String getFileName() { return fileName; }
+        public String getFileType() { return fileType; }
+        public String getFileKey() { return fileKey; }
+        public long getSize() { return size; }
+
+        // The key is the content hash, so it makes a strong validator
+        public String getEtag() { return "\"" + fileKey + "\""; }
+    }
+
+    public Optional<AttachmentInfo> findAttachment(Long submissionId) {
+        List<AttachmentInfo> rows = jdbcTemplate.query(METADATA_SQL, (rs, rowNum) ->
+            new AttachmentInfo(submissionId, rs.getString(1), rs.getString(2), rs.getString(3), rs.getLong(4)),
+            submissionId);
+
+        if (rows.isEmpty() || rows.get(0).getSize() == 0) {
+            return Optional.empty();
+        }
+        return Optional.of(rows.get(0));
+    }
+
+    public Resource openAttachment(AttachmentInfo info) {
+        return attachmentStore.open(info.getFileKey());
+    }
+
+    @Scheduled(initialDelayString = "${attachments.orphan-sweep.initial-delay-ms:300000}",
+               fixedDelayString = "${attachments.orphan-sweep.interval-ms:3600000}")
+    public void sweepOrphans() {
+        Instant cutoff = Instant.now().minusMillis(graceMillis);
+        try {
+            // Candidates first, references second: content stored again after the listing
+            // is either referenced by now or too recent to delete
+            List<String> candidates = attachmentStore.keysStoredBefore(cutoff);
+            if (!candidates.isEmpty()) {
+                Set<String> referenced = new HashSet<>(jdbcTemplate.queryForList(
+                    "SELECT DISTINCT file_key FROM contact_submissions WHERE file_key IS NOT NULL", String.class));
+                int deleted = 0;
+                for (String key : candidates) {
+                    if (!referenced.contains(key) && attachmentStore.deleteIfStoredBefore(key, cutoff)) {
+                        deleted++;
+                    }
+                }
+                orphansDeleted.addAndGet(deleted);
+                if (deleted > 0) {
+                    logger.info("Deleted {} unreferenced attachments", deleted);
+                }
+            }
+            sweeps.incrementAndGet();
+            lastSweepAt = LocalDateTime.now();
+        } catch (IOException | DataAccessException e) {
+            logger.warn("Attachment orphan sweep failed: {}", e.getMessage());
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("orphanGraceMillis", graceMillis);
+        metrics.put("orphanSweeps", sweeps.get());
+        metrics.put("orphansDeleted", orphansDeleted.get());
+        metrics.put("lastOrphanSweepAt", lastSweepAt);
+        return metrics;
+    }
+}
@@ -0,0 +1,191 @@
+package com.notebook;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Writes contact submissions as CSV straight to the caller's Writer. Rows are read in
+// keyset-paginated batches ordered by (submitted_at, id), so memory stays at one batch
+// whatever the export size and no connection is held while a slow client downloads.
+// Only the requested columns are selected.
+@Component
+public class SubmissionCsvExporter {
+
+    public enum Column {
+        ID("ID", "id", false),
+        NAME("Name", "name", true),
+        EMAIL("Email", "email", true),
+        PHONE("Phone", "phone", true),
+        SUBJECT("Subject", "subject", true),
+        MESSAGE("Message", "message", true),
+        FILENAME("FileName", "file_name", true),
+        FILESIZE("FileSize", "file_size", false),
+        SUBMITTEDAT("SubmittedAt", "submitted_at", true);
+
+        private final String header;
+        private final String sqlColumn;
+        private final boolean quoted;
+
+        Column(String header, String sqlColumn, boolean quoted) {
+            this.header = header;
+            this.sqlColumn = sqlColumn;
+            this.quoted = quoted;
+        }
+
+        // Accepts the header name in any case, e.g. "fileName" or "submittedat"
+        public static Column parse(String name) {
+            try {
+                return valueOf(name.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown export column: " + name);
+            }
+        }
+    }
+
+    // The columns exported when none are requested, in the historical order
+    public static final List<Column> DEFAULT_COLUMNS = List.of(
+        Column.ID, Column.NAME, Column.EMAIL, Column.PHONE, Column.SUBJECT,
+        Column.MESSAGE, Column.FILENAME, Column.SUBMITTEDAT);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${admin.export.batch-size:1000}")
+    private int batchSize;
+
+    private final AtomicInteger activeExports = new AtomicInteger();
+    private final AtomicLong exports = new AtomicLong();
+    private final AtomicLong rowsExported = new AtomicLong();
+
+    // from is inclusive and to exclusive; either may be null
+    public long export(Writer out, List<Column> columns, LocalDateTime from, LocalDateTime to) throws IOException {
+        activeExports.incrementAndGet();
+        try {
+            StringBuilder header = new StringBuilder();
+            StringBuilder select = new StringBuilder("SELECT id, submitted_at");
+            for (Column column : columns) {
+                header.append(header.length() == 0 ? "" : ",").append(column.header);
+                select.append(", ").append(column.sqlColumn);
+            }
+            out.write(header.append('\n').toString());
+            // Let the client see the response start before the first batch is read
+            out.flush();
+
+            select.append(" FROM contact_submissions WHERE submitted_at IS NOT NULL");
+            if (from != null) {
+                select.append(" AND submitted_at >= ?");
+            }
+            if (to != null) {
+                select.append(" AND submitted_at < ?");
+            }
+            String firstBatchSql = select + " ORDER BY submitted_at, id LIMIT " + batchSize;
+            String nextBatchSql = select + " AND (submitted_at > ? OR (submitted_at = ? AND id > ?))"
+                                  + " ORDER BY submitted_at, id LIMIT " + batchSize;
+
+            long rows = 0;
+            Timestamp lastTime = null;
+            long lastId = 0;
+            StringBuilder line = new StringBuilder(256);
+            while (true) {
+                List<Object> params = new ArrayList<>();
+                if (from != null) {
+                    params.add(Timestamp.valueOf(from));
+                }
+                if (to != null) {
+                    params.add(Timestamp.valueOf(to));
+                }
+                if (lastTime != null) {
+                    params.add(lastTime);
+                    params.add(lastTime);
+                    params.add(lastId);
+                }
+
+                long[] cursor = new long[] { 0, lastId };
+                Timestamp[] cursorTime = new Timestamp[] { lastTime };
+                jdbcTemplate.query(lastTime == null ? firstBatchSql : nextBatchSql, rs -> {
+                    line.setLength(0);
+                    for (int i = 0; i < columns.size(); i++) {
+                        if (i > 0) {
+                            line.append(',');
+                        }
+                        Object value = rs.getObject(i + 3);
+                        if (value instanceof Timestamp) {
+                            value = ((Timestamp) value).toLocalDateTime();
+                        }
+                        appendValue(line, value, columns.get(i).quoted);
+                    }
+                    line.append('\n');
+                    try {
+                        out.write(line.toString());
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    cursor[0]++;
+                    cursor[1] = rs.getLong(1);
+                    cursorTime[0] = rs.getTimestamp(2);
+                }, params.toArray());
+
+                rows += cursor[0];
+                rowsExported.addAndGet(cursor[0]);
+                out.flush();
+                if (cursor[0] < batchSize) {
+                    break;
+                }
+                lastId = cursor[1];
+                lastTime = cursorTime[0];
+            }
+            exports.incrementAndGet();
+            return rows;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            activeExports.decrementAndGet();
+        }
+    }
+
+    private static void appendValue(StringBuilder line, Object value, boolean quoted) {
+        if (value == null) {
+            if (quoted) {
+                line.append("\"\"");
+            }
+            return;
+        }
+        if (!quoted) {
+            line.append(value);
+            return;
+        }
+        String text = value.toString();
+        line.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"') {
+                line.append('"');
+            }
+            line.append(c);
+        }
+        line.append('"');
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("activeExports", activeExports.get());
+        metrics.put("exports", exports.get());
+        metrics.put("rowsExported", rowsExported.get());
+        metrics.put("batchSize", batchSize);
+        return metrics;
+    }
+}
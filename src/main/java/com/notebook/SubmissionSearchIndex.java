@@ -0,0 +1,312 @@
+package com.notebook;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// In-memory inverted index over contact submissions (name, email, subject, message).
+// Terms are kept sorted so a query term also matches every indexed term it is a prefix
+// of, which is what the admin typeahead needs. Each posting list is a sorted id array
+// with a per-document weight, so a search only touches the postings of its own terms
+// and never the submissions table. The index is built at startup and kept current by
+// SubmissionStatsService on save and delete.
+@Component
+public class SubmissionSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(SubmissionSearchIndex.class);
+
+    // Field weights: a hit in the name or subject counts more than one in the message
+    private static final int NAME_WEIGHT = 3;
+    private static final int SUBJECT_WEIGHT = 3;
+    private static final int EMAIL_WEIGHT = 2;
+    private static final int MESSAGE_WEIGHT = 1;
+
+    // Prefix-only matches score lower than exact term matches
+    private static final double PREFIX_FACTOR = 0.5;
+
+    public static class SearchResult {
+        private final List<Long> ids;
+        private final int totalHits;
+
+        SearchResult(List<Long> ids, int totalHits) {
+            this.ids = ids;
+            this.totalHits = totalHits;
+        }
+
+        // Ids of the requested page, best match first
+        public List<Long> getIds() { return ids; }
+        public int getTotalHits() { return totalHits; }
+    }
+
+    // Sorted document ids with the summed field weight of the term in each document
+    private static final class Postings {
+        long[] ids = new long[2];
+        int[] weights = new int[2];
+        int size;
+
+        void put(long id, int weight) {
+            int i = Arrays.binarySearch(ids, 0, size, id);
+            if (i >= 0) {
+                weights[i] = weight;
+                return;
+            }
+            i = -i - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            System.arraycopy(ids, i, ids, i + 1, size - i);
+            System.arraycopy(weights, i, weights, i + 1, size - i);
+            ids[i] = id;
+            weights[i] = weight;
+            size++;
+        }
+
+        void remove(long id) {
+            int i = Arrays.binarySearch(ids, 0, size, id);
+            if (i < 0) {
+                return;
+            }
+            System.arraycopy(ids, i + 1, ids, i, size - i - 1);
+            System.arraycopy(weights, i + 1, weights, i, size - i - 1);
+            size--;
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${admin.search.max-prefix-expansions:200}")
+    private int maxPrefixExpansions;
+
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private long documents;
+
+    private final AtomicLong searches = new AtomicLong();
+    private final AtomicLong totalSearchNanos = new AtomicLong();
+    private final AtomicLong maxSearchNanos = new AtomicLong();
+    private volatile long lastBuildMillis;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        long start = System.currentTimeMillis();
+        AtomicLong indexed = new AtomicLong();
+        jdbcTemplate.query(
+            "SELECT id, name, email, subject, message FROM contact_submissions",
+            rs -> {
+                add(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getString(5));
+                indexed.incrementAndGet();
+            });
+        lastBuildMillis = System.currentTimeMillis() - start;
+        logger.info("Search index built: {} submissions in {} ms", indexed.get(), lastBuildMillis);
+    }
+
+    public void add(ContactSubmission submission) {
+        add(submission.getId(), submission.getName(), submission.getEmail(),
+            submission.getSubject(), submission.getMessage());
+    }
+
+    public void remove(ContactSubmission submission) {
+        Map<String, Integer> docTerms = termWeights(submission.getName(), submission.getEmail(),
+                                                    submission.getSubject(), submission.getMessage());
+        lock.writeLock().lock();
+        try {
+            for (String term : docTerms.keySet()) {
+                Postings postings = terms.get(term);
+                if (postings != null) {
+                    postings.remove(submission.getId());
+                    if (postings.size == 0) {
+                        terms.remove(term);
+                    }
+                }
+            }
+            documents--;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void add(long id, String name, String email, String subject, String message) {
+        Map<String, Integer> docTerms = termWeights(name, email, subject, message);
+        lock.writeLock().lock();
+        try {
+            for (Map.Entry<String, Integer> entry : docTerms.entrySet()) {
+                terms.computeIfAbsent(entry.getKey(), t -> new Postings()).put(id, entry.getValue());
+            }
+            documents++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Every query term must match (exactly or as a prefix). Results are ranked by the
+    // field-weighted, idf-scaled score, newest first on ties.
+    public SearchResult search(String query, int page, int pageSize) {
+        long start = System.nanoTime();
+        List<String> queryTerms = tokenize(query);
+        if (queryTerms.isEmpty()) {
+            return new SearchResult(List.of(), 0);
+        }
+
+        Map<Long, Double> candidates = null;  // id -> score
+        lock.readLock().lock();
+        try {
+            double n = Math.max(documents, 1);
+            for (String queryTerm : queryTerms) {
+                Map<Long, Double> termScores = new HashMap<>();
+                int expansions = 0;
+                for (Map.Entry<String, Postings> entry : prefixRange(queryTerm).entrySet()) {
+                    if (expansions++ >= maxPrefixExpansions) {
+                        break;
+                    }
+                    Postings postings = entry.getValue();
+                    double idf = Math.log(1 + n / postings.size);
+                    double factor = entry.getKey().equals(queryTerm) ? 1.0 : PREFIX_FACTOR;
+                    for (int i = 0; i < postings.size; i++) {
+                        double score = postings.weights[i] * idf * factor;
+                        termScores.merge(postings.ids[i], score, Math::max);
+                    }
+                }
+
+                if (candidates == null) {
+                    candidates = new HashMap<>(termScores.size() * 2);
+                    candidates.putAll(termScores);
+                } else {
+                    // AND semantics: keep only documents that matched every earlier term
+                    candidates.keySet().retainAll(termScores.keySet());
+                    for (Map.Entry<Long, Double> c : candidates.entrySet()) {
+                        c.setValue(c.getValue() + termScores.get(c.getKey()));
+                    }
+                }
+                if (candidates.isEmpty()) {
+                    break;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Map.Entry<Long, Double>> ranked = new ArrayList<>(candidates.entrySet());
+        ranked.sort((a, b) -> {
+            int byScore = Double.compare(b.getValue(), a.getValue());
+            return byScore != 0 ? byScore : Long.compare(b.getKey(), a.getKey());
+        });
+
+        // long, so a huge page number past the results cannot overflow into a negative offset
+        int from = (int) Math.min((long) page * pageSize, ranked.size());
+        int to = Math.min(from + pageSize, ranked.size());
+        List<Long> ids = new ArrayList<>(to - from);
+        for (Map.Entry<Long, Double> hit : ranked.subList(from, to)) {
+            ids.add(hit.getKey());
+        }
+
+        long elapsed = System.nanoTime() - start;
+        searches.incrementAndGet();
+        totalSearchNanos.addAndGet(elapsed);
+        maxSearchNanos.accumulateAndGet(elapsed, Math::max);
+        return new SearchResult(ids, ranked.size());
+    }
+
+    // Indexed terms starting with the prefix, most common first
+    public List<String> suggest(String prefix, int limit) {
+        List<String> prefixTerms = tokenize(prefix);
+        if (prefixTerms.isEmpty()) {
+            return List.of();
+        }
+        String last = prefixTerms.get(prefixTerms.size() - 1);
+        List<Map.Entry<String, Integer>> matches = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (Map.Entry<String, Postings> entry : prefixRange(last).entrySet()) {
+                if (matches.size() >= maxPrefixExpansions) {
+                    break;
+                }
+                matches.add(Map.entry(entry.getKey(), entry.getValue().size));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        matches.sort((a, b) -> Integer.compare(b.getValue(), a.getValue()));
+        List<String> suggestions = new ArrayList<>();
+        for (int i = 0; i < Math.min(limit, matches.size()); i++) {
+            suggestions.add(matches.get(i).getKey());
+        }
+        return suggestions;
+    }
+
+    private NavigableMap<String, Postings> prefixRange(String prefix) {
+        // Every term starting with the prefix sorts before prefix + MAX_VALUE
+        return terms.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+    }
+
+    private static Map<String, Integer> termWeights(String name, String email, String subject, String message) {
+        Map<String, Integer> weights = new HashMap<>();
+        addTerms(weights, name, NAME_WEIGHT);
+        addTerms(weights, email, EMAIL_WEIGHT);
+        addTerms(weights, subject, SUBJECT_WEIGHT);
+        addTerms(weights, message, MESSAGE_WEIGHT);
+        return weights;
+    }
+
+    private static void addTerms(Map<String, Integer> weights, String text, int weight) {
+        for (String term : tokenize(text)) {
+            weights.merge(term, weight, Integer::sum);
+        }
+    }
+
+    // Lower-cased runs of letters and digits; e-mail addresses split into their parts
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        lock.readLock().lock();
+        try {
+            metrics.put("documents", documents);
+            metrics.put("terms", terms.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+        long count = searches.get();
+        metrics.put("searches", count);
+        metrics.put("avgSearchMicros", count == 0 ? 0 : totalSearchNanos.get() / count / 1000);
+        metrics.put("maxSearchMicros", maxSearchNanos.get() / 1000);
+        metrics.put("lastBuildMillis", lastBuildMillis);
+        return metrics;
+    }
+}
@@ -0,0 +1,192 @@
+package com.notebook;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Saves and deletes contact submissions together with their per-day counters, in the
+// same transaction, so the admin statistics are a sum over one row per day. Once the
+// transaction commits, the search index is updated and a SubmissionsChangedEvent is
+// published. A reconciliation pass recounts from contact_submissions at startup and
+// nightly to repair any drift (rows changed outside this service, failed deployments,
+// etc.).
+@Service
+public class SubmissionStatsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SubmissionStatsService.class);
+
+    private static final String INCREMENT_SQL =
+        "INSERT INTO submission_daily_counts (submission_date, total, with_files) VALUES (?, ?, ?) " +
+        "ON DUPLICATE KEY UPDATE total = total + ?, with_files = with_files + ?";
+
+    private static final String DECREMENT_SQL =
+        "UPDATE submission_daily_counts SET total = total - 1, with_files = with_files - ? WHERE submission_date = ?";
+
+    private static final String STATS_SQL =
+        "SELECT COALESCE(SUM(total), 0), COALESCE(SUM(with_files), 0), " +
+        "COALESCE(SUM(CASE WHEN submission_date >= ? THEN total ELSE 0 END), 0), " +
+        "COALESCE(SUM(CASE WHEN submission_date >= ? THEN total ELSE 0 END), 0), " +
+        "COALESCE(SUM(CASE WHEN submission_date >= ? THEN total ELSE 0 END), 0) " +
+        "FROM submission_daily_counts";
+
+    @Autowired
+    private ContactSubmissionRepository contactSubmissionRepository;
+
+    @Autowired
+    private SubmissionSearchIndex submissionSearchIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private final AtomicLong reconciliations = new AtomicLong();
+    private final AtomicLong daysCorrected = new AtomicLong();
+    private volatile LocalDateTime lastReconciledAt;
+
+    @Transactional
+    public ContactSubmission save(ContactSubmission submission) {
+        ContactSubmission saved = contactSubmissionRepository.save(submission);
+        int withFile = saved.getFileKey() != null ? 1 : 0;
+        jdbcTemplate.update(INCREMENT_SQL, Date.valueOf(saved.getSubmittedAt().toLocalDate()), 1, withFile, 1, withFile);
+        afterCommit(() -> {
+            submissionSearchIndex.add(saved);
+            eventPublisher.publishEvent(new SubmissionsChangedEvent(saved.getId(), SubmissionsChangedEvent.Change.CREATED,
+                                                                    withFile == 1));
+        });
+        return saved;
+    }
+
+    // Returns the deleted submission, if there was one
+    @Transactional
+    public Optional<ContactSubmission> delete(Long id) {
+        Optional<ContactSubmission> existing = contactSubmissionRepository.findById(id);
+        existing.ifPresent(submission -> {
+            contactSubmissionRepository.delete(submission);
+            jdbcTemplate.update(DECREMENT_SQL, submission.getFileKey() != null ? 1 : 0,
+                                Date.valueOf(submission.getSubmittedAt().toLocalDate()));
+            afterCommit(() -> {
+                submissionSearchIndex.remove(submission);
+                eventPublisher.publishEvent(new SubmissionsChangedEvent(submission.getId(), SubmissionsChangedEvent.Change.DELETED,
+                                                                        submission.getFileKey() != null));
+            });
+        });
+        return existing;
+    }
+
+    private static void afterCommit(Runnable action) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    // Windows are calendar days including today: week = last 7 days, month = last 30
+    public Map<String, Long> getStats() {
+        LocalDate today = LocalDate.now();
+        return jdbcTemplate.queryForObject(STATS_SQL, (rs, rowNum) -> {
+            Map<String, Long> stats = new LinkedHashMap<>();
+            stats.put("totalSubmissions", rs.getLong(1));
+            stats.put("submissionsWithFiles", rs.getLong(2));
+            stats.put("todaySubmissions", rs.getLong(3));
+            stats.put("weekSubmissions", rs.getLong(4));
+            stats.put("monthSubmissions", rs.getLong(5));
+            return stats;
+        }, Date.valueOf(today), Date.valueOf(today.minusDays(6)), Date.valueOf(today.minusDays(29)));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileOnStartup() {
+        reconcile();
+    }
+
+    @Scheduled(cron = "${submission.counters.reconcile-cron:0 30 3 * * *}")
+    public void reconcile() {
+        int corrected = new TransactionTemplate(transactionManager).execute(status -> {
+            // Lock the counters before counting, so submissions saved meanwhile wait for
+            // this transaction and are then applied on top of the corrected values
+            Map<LocalDate, long[]> counters = new HashMap<>();
+            jdbcTemplate.query(
+                "SELECT submission_date, total, with_files FROM submission_daily_counts FOR UPDATE",
+                rs -> {
+                    counters.put(rs.getDate(1).toLocalDate(), new long[] { rs.getLong(2), rs.getLong(3) });
+                });
+
+            Map<LocalDate, long[]> actual = new HashMap<>();
+            jdbcTemplate.query(
+                "SELECT CAST(submitted_at AS DATE), COUNT(*), COUNT(file_key) FROM contact_submissions " +
+                "WHERE submitted_at IS NOT NULL GROUP BY CAST(submitted_at AS DATE)",
+                rs -> {
+                    actual.put(rs.getDate(1).toLocalDate(), new long[] { rs.getLong(2), rs.getLong(3) });
+                });
+
+            Set<LocalDate> days = new HashSet<>(counters.keySet());
+            days.addAll(actual.keySet());
+            int fixed = 0;
+            for (LocalDate day : days) {
+                long[] expected = actual.getOrDefault(day, new long[] { 0, 0 });
+                long[] current = counters.get(day);
+                if (current != null && current[0] == expected[0] && current[1] == expected[1]) {
+                    continue;
+                }
+                if (expected[0] == 0) {
+                    jdbcTemplate.update("DELETE FROM submission_daily_counts WHERE submission_date = ?", Date.valueOf(day));
+                } else if (current == null) {
+                    jdbcTemplate.update(
+                        "INSERT INTO submission_daily_counts (submission_date, total, with_files) VALUES (?, ?, ?)",
+                        Date.valueOf(day), expected[0], expected[1]);
+                } else {
+                    jdbcTemplate.update(
+                        "UPDATE submission_daily_counts SET total = ?, with_files = ? WHERE submission_date = ?",
+                        expected[0], expected[1], Date.valueOf(day));
+                }
+                fixed++;
+            }
+            return fixed;
+        });
+
+        reconciliations.incrementAndGet();
+        daysCorrected.addAndGet(corrected);
+        lastReconciledAt = LocalDateTime.now();
+        if (corrected > 0) {
+            logger.warn("Submission counters reconciled: {} day(s) corrected", corrected);
+            eventPublisher.publishEvent(new SubmissionsChangedEvent(null, SubmissionsChangedEvent.Change.RECOUNTED, false));
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("reconciliations", reconciliations.get());
+        metrics.put("daysCorrected", daysCorrected.get());
+        metrics.put("lastReconciledAt", lastReconciledAt);
+        return metrics;
+    }
+}
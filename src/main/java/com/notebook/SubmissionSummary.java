@@ -0,0 +1,55 @@
+package com.notebook;
+
+import java.time.LocalDateTime;
+
+// Metadata-only view of a contact submission for the admin list: no attachment bytes
+// and only the start of the message.
+public class SubmissionSummary {
+    public static final int MESSAGE_PREVIEW_LENGTH = 200;
+
+    private final Long id;
+    private final String name;
+    private final String email;
+    private final String phone;
+    private final String subject;
+    private final String messagePreview;
+    private final String fileName;
+    private final String fileKey;
+    private final Long fileSize;
+    private final LocalDateTime submittedAt;
+
+    public SubmissionSummary(Long id, String name, String email, String phone, String subject,
+                             String messagePreview, String fileName, String fileKey, Long fileSize,
+                             LocalDateTime submittedAt) {
+        this.id = id;
+        this.name = name;
+        this.email = email;
+        this.phone = phone;
+        this.subject = subject;
+        this.messagePreview = messagePreview;
+        this.fileName = fileName;
+        this.fileKey = fileKey;
+        this.fileSize = fileSize;
+        this.submittedAt = submittedAt;
+    }
+
+    public static SubmissionSummary of(ContactSubmission s) {
+        String message = s.getMessage();
+        String preview = message != null && message.length() > MESSAGE_PREVIEW_LENGTH
+                ? message.substring(0, MESSAGE_PREVIEW_LENGTH) : message;
+        return new SubmissionSummary(s.getId(), s.getName(), s.getEmail(), s.getPhone(), s.getSubject(),
+                                     preview, s.getFileName(), s.getFileKey(), s.getFileSize(), s.getSubmittedAt());
+    }
+
+    public Long getId() { return id; }
+    public String getName() { return name; }
+    public String getEmail() { return email; }
+    public String getPhone() { return phone; }
+    public String getSubject() { return subject; }
+    public String getMessagePreview() { return messagePreview; }
+    public String getFileName() { return fileName; }
+    public String getFileKey() { return fileKey; }
+    public Long getFileSize() { return fileSize; }
+    public LocalDateTime getSubmittedAt() { return submittedAt; }
+    public boolean isHasFile() { return fileKey != null; }
+}
@@ -0,0 +1,30 @@
+package com.notebook;
+
+// Published after a transaction that added or removed contact submissions commits
+public class SubmissionsChangedEvent {
+
+    public enum Change { CREATED, DELETED, RECOUNTED }
+
+    private final Long submissionId;
+    private final Change change;
+    private final boolean withFile;
+
+    public SubmissionsChangedEvent(Long submissionId, Change change, boolean withFile) {
+        this.submissionId = submissionId;
+        this.change = change;
+        this.withFile = withFile;
+    }
+
+    // Null when several submissions changed (e.g. counter reconciliation)
+    public Long getSubmissionId() {
+        return submissionId;
+    }
+
+    public Change getChange() {
+        return change;
+    }
+
+    public boolean isWithFile() {
+        return withFile;
+    }
+}
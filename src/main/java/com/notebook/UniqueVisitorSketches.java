@@ -0,0 +1,285 @@
+package com.notebook;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Daily HyperLogLog sketches of distinct visitors (by IP), distinct sessions and distinct
+// visitors per page. VisitorLogWriter feeds every written visit in; changed sketches are
+// merged into visitor_daily_sketches every persist interval. A unique count for any range
+// of days merges that range's sketches, so neither memory nor query time depends on
+// traffic. Adding is idempotent, so replaying visits (the backfill) cannot over-count.
+// The backfill keeps a high-water mark in rollup_watermarks, advanced only after a chunk's
+// sketches are stored, and resumes from it at every startup; visits written while the
+// application was down, or lost with sketches not yet persisted, are picked up the same way.
+@Component
+public class UniqueVisitorSketches {
+
+    private static final Logger logger = LoggerFactory.getLogger(UniqueVisitorSketches.class);
+
+    private static final int BACKFILL_CHUNK = 10000;
+
+    private static final String WATERMARK_NAME = "visitor_daily_sketches";
+
+    public enum Kind { VISITORS, SESSIONS, PAGE_VISITORS }
+
+    private record SketchKey(LocalDate day, Kind kind, String key) { }
+
+    private record PersistedDay(LocalDate day, HyperLogLog sketch) { }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Sketches touched since startup for recent days; guarded by this
+    private final Map<SketchKey, HyperLogLog> live = new HashMap<>();
+    private final Set<SketchKey> dirty = new LinkedHashSet<>();
+
+    // Today's visitor sketch as stored when first asked for; later visits are all in live
+    private volatile PersistedDay persistedToday;
+
+    private final AtomicLong visitsRecorded = new AtomicLong();
+    private final AtomicLong sketchesPersisted = new AtomicLong();
+    private final AtomicLong bytesPersisted = new AtomicLong();
+    private volatile long backfilledThroughId;
+
+    public synchronized void record(List<VisitorLog> visits) {
+        for (VisitorLog visit : visits) {
+            LocalDate day = visit.getVisitTime().toLocalDate();
+            sketch(day, Kind.VISITORS, "").add(visit.getIpAddress());
+            sketch(day, Kind.SESSIONS, "").add(visit.getSessionId());
+            sketch(day, Kind.PAGE_VISITORS, pageKey(visit.getPageVisited())).add(visit.getIpAddress());
+        }
+        visitsRecorded.addAndGet(visits.size());
+    }
+
+    private HyperLogLog sketch(LocalDate day, Kind kind, String key) {
+        SketchKey sketchKey = new SketchKey(day, kind, key);
+        dirty.add(sketchKey);
+        return live.computeIfAbsent(sketchKey, k -> new HyperLogLog());
+    }
+
+    // Estimated distinct count over [from, to] (inclusive days) for one sketch series
+    public long estimate(Kind kind, String key, LocalDate from, LocalDate to) {
+        HyperLogLog merged = new HyperLogLog();
+        jdbcTemplate.query(
+            "SELECT registers FROM visitor_daily_sketches WHERE kind = ? AND sketch_key = ? " +
+            "AND sketch_date >= ? AND sketch_date <= ?",
+            rs -> { merged.merge(HyperLogLog.fromBytes(rs.getBytes(1))); },
+            kind.name(), key, Date.valueOf(from), Date.valueOf(to));
+        synchronized (this) {
+            live.forEach((k, sketch) -> {
+                if (k.kind() == kind && k.key().equals(key) && !k.day().isBefore(from) && !k.day().isAfter(to)) {
+                    merged.merge(sketch);
+                }
+            });
+        }
+        return merged.estimate();
+    }
+
+    // Today's distinct visitors, cheap enough to call every second: the stored sketch is
+    // read once per day and merged with the live one, which holds every visit since startup
+    public long estimateVisitorsToday() {
+        LocalDate today = LocalDate.now();
+        PersistedDay base = persistedToday;
+        if (base == null || !base.day().equals(today)) {
+            HyperLogLog stored = new HyperLogLog();
+            jdbcTemplate.query(
+                "SELECT registers FROM visitor_daily_sketches WHERE sketch_date = ? AND kind = ? AND sketch_key = ''",
+                rs -> { stored.merge(HyperLogLog.fromBytes(rs.getBytes(1))); },
+                Date.valueOf(today), Kind.VISITORS.name());
+            base = new PersistedDay(today, stored);
+            persistedToday = base;
+        }
+        HyperLogLog merged = new HyperLogLog();
+        merged.merge(base.sketch());
+        synchronized (this) {
+            HyperLogLog sketch = live.get(new SketchKey(today, Kind.VISITORS, ""));
+            if (sketch != null) {
+                merged.merge(sketch);
+            }
+        }
+        return merged.estimate();
+    }
+
+    // Estimated distinct count per key over [from, to], largest first
+    public List<Object[]> estimateByKey(Kind kind, LocalDate from, LocalDate to) {
+        Map<String, HyperLogLog> merged = new HashMap<>();
+        jdbcTemplate.query(
+            "SELECT sketch_key, registers FROM visitor_daily_sketches WHERE kind = ? " +
+            "AND sketch_date >= ? AND sketch_date <= ?",
+            rs -> {
+                merged.computeIfAbsent(rs.getString(1), k -> new HyperLogLog())
+                      .merge(HyperLogLog.fromBytes(rs.getBytes(2)));
+            },
+            kind.name(), Date.valueOf(from), Date.valueOf(to));
+        synchronized (this) {
+            live.forEach((k, sketch) -> {
+                if (k.kind() == kind && !k.day().isBefore(from) && !k.day().isAfter(to)) {
+                    merged.computeIfAbsent(k.key(), x -> new HyperLogLog()).merge(sketch);
+                }
+            });
+        }
+        List<Object[]> result = new ArrayList<>(merged.size());
+        merged.forEach((key, sketch) -> result.add(new Object[] { key, sketch.estimate() }));
+        result.sort((a, b) -> Long.compare((Long) b[1], (Long) a[1]));
+        return result;
+    }
+
+    @Scheduled(initialDelayString = "${visitor.sketch.persist-interval-ms:60000}",
+               fixedDelayString = "${visitor.sketch.persist-interval-ms:60000}")
+    public void persist() {
+        persistDirty();
+    }
+
+    // Returns false if the changed sketches could not be stored (they stay dirty)
+    private boolean persistDirty() {
+        Map<SketchKey, byte[]> pending = new LinkedHashMap<>();
+        synchronized (this) {
+            for (SketchKey key : dirty) {
+                pending.put(key, live.get(key).toBytes());
+            }
+            dirty.clear();
+            // Days before yesterday rarely receive visits any more; drop them once saved
+            LocalDate keepFrom = LocalDate.now().minusDays(1);
+            live.keySet().removeIf(k -> k.day().isBefore(keepFrom) && !pending.containsKey(k));
+        }
+        if (pending.isEmpty()) {
+            return true;
+        }
+
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                pending.forEach((key, bytes) -> {
+                    // Merge with the stored sketch so other writers' registers are kept
+                    List<byte[]> stored = jdbcTemplate.query(
+                        "SELECT registers FROM visitor_daily_sketches WHERE sketch_date = ? AND kind = ? " +
+                        "AND sketch_key = ? FOR UPDATE",
+                        (rs, rowNum) -> rs.getBytes(1),
+                        Date.valueOf(key.day()), key.kind().name(), key.key());
+                    byte[] merged = bytes;
+                    if (stored.isEmpty()) {
+                        jdbcTemplate.update(
+                            "INSERT INTO visitor_daily_sketches (sketch_date, kind, sketch_key, registers) VALUES (?, ?, ?, ?)",
+                            Date.valueOf(key.day()), key.kind().name(), key.key(), merged);
+                    } else {
+                        HyperLogLog sketch = HyperLogLog.fromBytes(stored.get(0));
+                        sketch.merge(HyperLogLog.fromBytes(bytes));
+                        merged = sketch.toBytes();
+                        jdbcTemplate.update(
+                            "UPDATE visitor_daily_sketches SET registers = ? WHERE sketch_date = ? AND kind = ? AND sketch_key = ?",
+                            merged, Date.valueOf(key.day()), key.kind().name(), key.key());
+                    }
+                    bytesPersisted.addAndGet(merged.length);
+                }));
+            sketchesPersisted.addAndGet(pending.size());
+            return true;
+        } catch (Exception e) {
+            logger.error("Failed to persist {} visitor sketches: {}", pending.size(), e.getMessage());
+            synchronized (this) {
+                // Keep them dirty; the in-memory registers still hold everything
+                pending.keySet().stream().filter(live::containsKey).forEach(dirty::add);
+            }
+            return false;
+        }
+    }
+
+    // Feeds visitor_logs rows past the backfill mark into the sketches
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        long lastId = readWatermark();
+        backfilledThroughId = lastId;
+        long total = 0;
+        while (true) {
+            List<VisitorLog> chunk = new ArrayList<>(BACKFILL_CHUNK);
+            long[] maxId = new long[] { lastId };
+            jdbcTemplate.query(
+                "SELECT id, visit_time, ip_address, session_id, page_visited FROM visitor_logs " +
+                "WHERE id > ? ORDER BY id LIMIT " + BACKFILL_CHUNK,
+                rs -> {
+                    maxId[0] = rs.getLong(1);
+                    VisitorLog visit = new VisitorLog();
+                    visit.setVisitTime(rs.getTimestamp(2).toLocalDateTime());
+                    visit.setIpAddress(rs.getString(3));
+                    visit.setSessionId(rs.getString(4));
+                    visit.setPageVisited(rs.getString(5));
+                    chunk.add(visit);
+                }, lastId);
+            if (chunk.isEmpty()) {
+                break;
+            }
+            record(chunk);
+            if (!persistDirty()) {
+                // Resume from the last stored chunk next time
+                logger.warn("Stopped the unique-visitor sketch backfill at visit id {}", lastId);
+                break;
+            }
+            lastId = maxId[0];
+            writeWatermark(lastId);
+            backfilledThroughId = lastId;
+            total += chunk.size();
+        }
+        if (total > 0) {
+            logger.info("Backfilled unique-visitor sketches from {} visits (through id {})", total, lastId);
+        }
+    }
+
+    private long readWatermark() {
+        List<Long> current = jdbcTemplate.queryForList(
+            "SELECT last_id FROM rollup_watermarks WHERE name = ?", Long.class, WATERMARK_NAME);
+        return current.isEmpty() ? 0 : current.get(0);
+    }
+
+    private void writeWatermark(long lastId) {
+        if (jdbcTemplate.update("UPDATE rollup_watermarks SET last_id = ? WHERE name = ?", lastId, WATERMARK_NAME) == 0) {
+            jdbcTemplate.update("INSERT INTO rollup_watermarks (name, last_id) VALUES (?, ?)", WATERMARK_NAME, lastId);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        persist();
+    }
+
+    private static String pageKey(String page) {
+        if (page == null) {
+            return "Unknown";
+        }
+        return page.length() > 200 ? page.substring(0, 200) : page;
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        synchronized (this) {
+            metrics.put("liveSketches", live.size());
+            metrics.put("dirtySketches", dirty.size());
+            metrics.put("liveBytes", (long) live.size() * HyperLogLog.REGISTERS);
+        }
+        metrics.put("visitsRecorded", visitsRecorded.get());
+        metrics.put("sketchesPersisted", sketchesPersisted.get());
+        metrics.put("bytesPersisted", bytesPersisted.get());
+        metrics.put("backfilledThroughId", backfilledThroughId);
+        return metrics;
+    }
+}
@@ -0,0 +1,140 @@
+package com.notebook;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Reads an uploaded attachment exactly once: the first bytes are peeked to detect the
+// real file type, then the stream goes straight into the AttachmentStore, which hashes
+// and counts it while writing. Heap use per upload is a fixed-size buffer, whatever
+// the file size.
+@Service
+public class UploadIngestionService {
+
+    // Enough to recognise every signature below
+    private static final int SNIFF_BYTES = 16;
+
+    public static final int BUFFER_BYTES_PER_UPLOAD = AttachmentStore.COPY_BUFFER_SIZE + SNIFF_BYTES;
+
+    public enum Rejection { EMPTY, TYPE_MISMATCH }
+
+    public static class Result {
+        private final AttachmentStore.StoredAttachment stored;
+        private final String detectedType;
+        private final Rejection rejection;
+
+        private Result(AttachmentStore.StoredAttachment stored, String detectedType, Rejection rejection) {
+            this.stored = stored;
+            this.detectedType = detectedType;
+            this.rejection = rejection;
+        }
+
+        public boolean isAccepted() { return rejection == null; }
+        public Rejection getRejection() { return rejection; }
+        public String getDetectedType() { return detectedType; }
+        public String getKey() { return stored.getKey(); }
+        public long getSize() { return stored.getSize(); }
+    }
+
+    @Autowired
+    private AttachmentStore attachmentStore;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong rejectedEmpty = new AtomicLong();
+    private final AtomicLong rejectedType = new AtomicLong();
+    private final AtomicLong bytesIngested = new AtomicLong();
+
+    // claimedType has already been checked to be image/* or application/pdf
+    public Result ingest(InputStream upload, String claimedType) throws IOException {
+        int current = inFlight.incrementAndGet();
+        peakInFlight.accumulateAndGet(current, Math::max);
+        try {
+            BufferedInputStream in = new BufferedInputStream(upload, SNIFF_BYTES);
+            in.mark(SNIFF_BYTES);
+            byte[] header = in.readNBytes(SNIFF_BYTES);
+            in.reset();
+
+            if (header.length == 0) {
+                rejectedEmpty.incrementAndGet();
+                return new Result(null, null, Rejection.EMPTY);
+            }
+
+            String detectedType = detectType(header);
+            if (detectedType == null || !matchesClaim(detectedType, claimedType)) {
+                rejectedType.incrementAndGet();
+                return new Result(null, detectedType, Rejection.TYPE_MISMATCH);
+            }
+
+            AttachmentStore.StoredAttachment stored = attachmentStore.put(in);
+            accepted.incrementAndGet();
+            bytesIngested.addAndGet(stored.getSize());
+            return new Result(stored, detectedType, null);
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private static boolean matchesClaim(String detectedType, String claimedType) {
+        if ("application/pdf".equals(claimedType)) {
+            return "application/pdf".equals(detectedType);
+        }
+        // Browsers are loose about image subtypes (image/jpg, image/pjpeg...), so any
+        // genuine image satisfies an image/* claim and the detected type is stored
+        return detectedType.startsWith("image/");
+    }
+
+    // Magic-number detection for the types the contact form accepts
+    static String detectType(byte[] h) {
+        if (startsWith(h, 0x25, 0x50, 0x44, 0x46, 0x2D)) return "application/pdf";              // %PDF-
+        if (startsWith(h, 0x89, 0x50, 0x4E, 0x47, 0x0D, 0x0A, 0x1A, 0x0A)) return "image/png";
+        if (startsWith(h, 0xFF, 0xD8, 0xFF)) return "image/jpeg";
+        if (startsWith(h, 0x47, 0x49, 0x46, 0x38)) return "image/gif";                           // GIF8
+        if (startsWith(h, 0x42, 0x4D)) return "image/bmp";                                        // BM
+        if (startsWith(h, 0x49, 0x49, 0x2A, 0x00) || startsWith(h, 0x4D, 0x4D, 0x00, 0x2A)) return "image/tiff";
+        if (startsWith(h, 0x00, 0x00, 0x01, 0x00)) return "image/x-icon";
+        if (h.length >= 12 && startsWith(h, 0x52, 0x49, 0x46, 0x46)                              // RIFF....WEBP
+                && h[8] == 'W' && h[9] == 'E' && h[10] == 'B' && h[11] == 'P') return "image/webp";
+        if (h.length >= 12 && h[4] == 'f' && h[5] == 't' && h[6] == 'y' && h[7] == 'p') {        // ISO BMFF
+            String brand = new String(h, 8, 4, StandardCharsets.US_ASCII);
+            if (brand.startsWith("avi")) return "image/avif";
+            if (brand.startsWith("hei") || brand.startsWith("mif") || brand.startsWith("hev")) return "image/heic";
+        }
+        return null;
+    }
+
+    private static boolean startsWith(byte[] data, int... prefix) {
+        if (data.length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if ((data[i] & 0xFF) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        int current = inFlight.get();
+        metrics.put("inFlight", current);
+        metrics.put("peakInFlight", peakInFlight.get());
+        metrics.put("bufferBytesPerUpload", BUFFER_BYTES_PER_UPLOAD);
+        metrics.put("bufferBytesInUse", (long) current * BUFFER_BYTES_PER_UPLOAD);
+        metrics.put("accepted", accepted.get());
+        metrics.put("rejectedEmpty", rejectedEmpty.get());
+        metrics.put("rejectedTypeMismatch", rejectedType.get());
+        metrics.put("bytesIngested", bytesIngested.get());
+        return metrics;
+    }
+}
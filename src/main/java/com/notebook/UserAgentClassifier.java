@@ -0,0 +1,273 @@
+package com.notebook;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Classifies User-Agent strings into device type, browser (with major version) and OS.
+// The UA is scanned once: each alphanumeric token is matched case-insensitively against
+// a keyword trie built at startup, and a "/version" right after a keyword is remembered
+// by position (Internet Explorer's "MSIE 10.0" and "rv:11.0" use a space and a colon). Precedence is decided afterwards from the keywords seen, so Edge and
+// Opera (which also send "Chrome" and "Safari") and Android (which also sends "Linux")
+// are classified correctly. Results are cached per raw UA string in a bounded LRU map,
+// since real traffic repeats a small set of user agents.
+@Component
+public class UserAgentClassifier {
+
+    private static final String UNKNOWN = "Unknown";
+
+    // Longer UAs are still classified but not cached
+    private static final int MAX_CACHED_LENGTH = 1000;
+
+    private enum Keyword {
+        MOBILE, TABLET, IPHONE, IPAD, IPOD, ANDROID, WINDOWS, MACINTOSH, CROS, LINUX, X11,
+        EDGE, EDG, EDGA, EDGIOS, OPR, OPERA, OPT, SAMSUNGBROWSER, FIREFOX, FXIOS,
+        CHROME, CHROMIUM, CRIOS, MSIE, TRIDENT, RV, SAFARI, VERSION
+    }
+
+    private static final Keyword[] KEYWORDS = Keyword.values();
+
+    // Trie over [a-z0-9]; child 0 means "no child" since the root is never a child
+    private static final int[][] TRIE_NEXT;
+    private static final int[] TRIE_KEYWORD;
+
+    static {
+        int nodes = 1;
+        for (Keyword keyword : KEYWORDS) {
+            nodes += keyword.name().length();
+        }
+        int[][] next = new int[nodes][36];
+        int[] terminal = new int[nodes];
+        Arrays.fill(terminal, -1);
+        int used = 1;
+        for (Keyword keyword : KEYWORDS) {
+            int node = 0;
+            for (char c : keyword.name().toCharArray()) {
+                int slot = slot(c);
+                if (next[node][slot] == 0) {
+                    next[node][slot] = used++;
+                }
+                node = next[node][slot];
+            }
+            terminal[node] = keyword.ordinal();
+        }
+        TRIE_NEXT = next;
+        TRIE_KEYWORD = terminal;
+    }
+
+    public static final class Classification {
+        private final String deviceType;
+        private final String browser;
+        private final String browserVersion;
+        private final String operatingSystem;
+
+        Classification(String deviceType, String browser, String browserVersion, String operatingSystem) {
+            this.deviceType = deviceType;
+            this.browser = browser;
+            this.browserVersion = browserVersion;
+            this.operatingSystem = operatingSystem;
+        }
+
+        public String getDeviceType() { return deviceType; }
+        public String getBrowser() { return browser; }
+        public String getBrowserVersion() { return browserVersion; }
+        public String getOperatingSystem() { return operatingSystem; }
+    }
+
+    private static final Classification UNKNOWN_AGENT = new Classification(UNKNOWN, UNKNOWN, null, UNKNOWN);
+
+    @Value("${visitor.user-agent.cache-size:1000}")
+    private int cacheSize;
+
+    // Access-ordered, so the eldest entry is the least recently used; guarded by itself
+    private Map<String, Classification> cache;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong classifyNanos = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        cache = new LinkedHashMap<>(Math.max(16, cacheSize * 4 / 3 + 1), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Classification> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    public Classification classify(String userAgent) {
+        if (userAgent == null || userAgent.isEmpty()) {
+            return UNKNOWN_AGENT;
+        }
+        Classification result;
+        synchronized (cache) {
+            result = cache.get(userAgent);
+        }
+        if (result != null) {
+            hits.incrementAndGet();
+            return result;
+        }
+
+        long start = System.nanoTime();
+        result = scan(userAgent);
+        classifyNanos.addAndGet(System.nanoTime() - start);
+        misses.incrementAndGet();
+        if (userAgent.length() <= MAX_CACHED_LENGTH) {
+            synchronized (cache) {
+                cache.put(userAgent, result);
+            }
+        }
+        return result;
+    }
+
+    private static Classification scan(String ua) {
+        long seen = 0;
+        // Start offset of the "/version" following each keyword, or 0
+        int[] versionAt = new int[KEYWORDS.length];
+
+        int n = ua.length();
+        int i = 0;
+        while (i < n) {
+            if (!Character.isLetterOrDigit(ua.charAt(i))) {
+                i++;
+                continue;
+            }
+            int node = 0;
+            while (i < n && Character.isLetterOrDigit(ua.charAt(i))) {
+                if (node >= 0) {
+                    int slot = slot(ua.charAt(i));
+                    node = slot < 0 || TRIE_NEXT[node][slot] == 0 ? -1 : TRIE_NEXT[node][slot];
+                }
+                i++;
+            }
+            if (node > 0 && TRIE_KEYWORD[node] >= 0) {
+                int keyword = TRIE_KEYWORD[node];
+                seen |= 1L << keyword;
+                if (i + 1 < n && ua.charAt(i) == versionSeparator(keyword) && versionAt[keyword] == 0) {
+                    versionAt[keyword] = i + 1;
+                }
+            }
+        }
+
+        String os;
+        boolean ios = has(seen, Keyword.IPHONE) || has(seen, Keyword.IPAD) || has(seen, Keyword.IPOD);
+        if (has(seen, Keyword.ANDROID)) {
+            os = "Android";
+        } else if (ios) {
+            os = "iOS";
+        } else if (has(seen, Keyword.WINDOWS)) {
+            os = "Windows";
+        } else if (has(seen, Keyword.CROS)) {
+            os = "Chrome OS";
+        } else if (has(seen, Keyword.MACINTOSH)) {
+            os = "macOS";
+        } else if (has(seen, Keyword.LINUX) || has(seen, Keyword.X11)) {
+            os = "Linux";
+        } else {
+            os = UNKNOWN;
+        }
+
+        String device;
+        if (has(seen, Keyword.IPAD) || has(seen, Keyword.TABLET)
+                || (has(seen, Keyword.ANDROID) && !has(seen, Keyword.MOBILE))) {
+            device = "Tablet";
+        } else if (has(seen, Keyword.MOBILE) || has(seen, Keyword.IPHONE) || has(seen, Keyword.IPOD)) {
+            device = "Mobile";
+        } else {
+            device = "Desktop";
+        }
+
+        // Most specific first: Chromium derivatives also send Chrome and Safari tokens
+        String browser;
+        Keyword versionFrom;
+        if ((versionFrom = first(seen, Keyword.EDG, Keyword.EDGE, Keyword.EDGA, Keyword.EDGIOS)) != null) {
+            browser = "Edge";
+        } else if ((versionFrom = first(seen, Keyword.OPR, Keyword.OPERA, Keyword.OPT)) != null) {
+            browser = "Opera";
+        } else if ((versionFrom = first(seen, Keyword.SAMSUNGBROWSER)) != null) {
+            browser = "Samsung Internet";
+        } else if ((versionFrom = first(seen, Keyword.FIREFOX, Keyword.FXIOS)) != null) {
+            browser = "Firefox";
+        } else if ((versionFrom = first(seen, Keyword.CHROME, Keyword.CRIOS, Keyword.CHROMIUM)) != null) {
+            browser = "Chrome";
+        } else if (has(seen, Keyword.MSIE) || has(seen, Keyword.TRIDENT)) {
+            // "Trident/7.0" is the engine; IE 11 gives its own version only as "rv:11.0"
+            browser = "Internet Explorer";
+            versionFrom = has(seen, Keyword.MSIE) ? Keyword.MSIE : Keyword.RV;
+        } else if (has(seen, Keyword.SAFARI)) {
+            // Safari's own version is in "Version/x", not in "Safari/<webkit build>"
+            browser = "Safari";
+            versionFrom = Keyword.VERSION;
+        } else {
+            browser = UNKNOWN;
+        }
+
+        String version = null;
+        if (versionFrom != null && versionAt[versionFrom.ordinal()] > 0) {
+            version = majorVersion(ua, versionAt[versionFrom.ordinal()]);
+        }
+        return new Classification(device, browser, version, os);
+    }
+
+    private static char versionSeparator(int keyword) {
+        if (keyword == Keyword.MSIE.ordinal()) {
+            return ' ';
+        }
+        return keyword == Keyword.RV.ordinal() ? ':' : '/';
+    }
+
+    private static boolean has(long seen, Keyword keyword) {
+        return (seen & (1L << keyword.ordinal())) != 0;
+    }
+
+    private static Keyword first(long seen, Keyword... candidates) {
+        for (Keyword candidate : candidates) {
+            if (has(seen, candidate)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private static String majorVersion(String ua, int start) {
+        int end = start;
+        while (end < ua.length() && end - start < 10 && Character.isDigit(ua.charAt(end))) {
+            end++;
+        }
+        return end > start ? ua.substring(start, end) : null;
+    }
+
+    private static int slot(char c) {
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a';
+        }
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A';
+        }
+        if (c >= '0' && c <= '9') {
+            return 26 + (c - '0');
+        }
+        return -1;
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        synchronized (cache) {
+            metrics.put("cachedAgents", cache.size());
+        }
+        metrics.put("cacheSize", cacheSize);
+        metrics.put("hits", hitCount);
+        metrics.put("misses", missCount);
+        metrics.put("hitRate", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+        metrics.put("avgClassifyMicros", missCount == 0 ? 0.0 : classifyNanos.get() / 1000.0 / missCount);
+        return metrics;
+    }
+}
@@ -8,6 +8,7 @@ import jakarta.persistence.Column;
 // import jakarta.persistence.*; // Uncomment if using Jakarta EE
 import java.time.LocalDateTime;
 
+// Schema and indexes are managed by the Flyway migrations in db/migration
 @Entity
 @jakarta.persistence.Table(name = "visitor_logs")
 public class VisitorLog {
@@ -42,6 +43,9 @@ public class VisitorLog {
     @Column(length = 100)
     private String browser;
     
+    @Column(length = 20)
+    private String browserVersion;
+    
     @Column(length = 100)
     private String operatingSystem;
     
@@ -65,44 +69,6 @@ public class VisitorLog {
         this.pageVisited = pageVisited;
         this.referrer = referrer;
         this.sessionId = sessionId;
-        this.deviceType = parseDeviceType(userAgent);
-        this.browser = parseBrowser(userAgent);
-        this.operatingSystem = parseOperatingSystem(userAgent);
-    }
-
-    // Helper methods to parse user agent
-    private String parseDeviceType(String userAgent) {
-        if (userAgent == null) return "Unknown";
-        userAgent = userAgent.toLowerCase();
-        if (userAgent.contains("mobile") || userAgent.contains("android") || userAgent.contains("iphone")) {
-            return "Mobile";
-        } else if (userAgent.contains("tablet") || userAgent.contains("ipad")) {
-            return "Tablet";
-        } else {
-            return "Desktop";
-        }
-    }
-
-    private String parseBrowser(String userAgent) {
-        if (userAgent == null) return "Unknown";
-        userAgent = userAgent.toLowerCase();
-        if (userAgent.contains("chrome")) return "Chrome";
-        if (userAgent.contains("firefox")) return "Firefox";
-        if (userAgent.contains("safari")) return "Safari";
-        if (userAgent.contains("edge")) return "Edge";
-        if (userAgent.contains("opera")) return "Opera";
-        return "Unknown";
-    }
-
-    private String parseOperatingSystem(String userAgent) {
-        if (userAgent == null) return "Unknown";
-        userAgent = userAgent.toLowerCase();
-        if (userAgent.contains("windows")) return "Windows";
-        if (userAgent.contains("mac")) return "macOS";
-        if (userAgent.contains("linux")) return "Linux";
-        if (userAgent.contains("android")) return "Android";
-        if (userAgent.contains("ios")) return "iOS";
-        return "Unknown";
     }
 
     // Getters and setters
@@ -136,6 +102,9 @@ public class VisitorLog {
     public String getBrowser() { return browser; }
     public void setBrowser(String browser) { this.browser = browser; }
     
+    public String getBrowserVersion() { return browserVersion; }
+    public void setBrowserVersion(String browserVersion) { this.browserVersion = browserVersion; }
+    
     public String getOperatingSystem() { return operatingSystem; }
     public void setOperatingSystem(String operatingSystem) { this.operatingSystem = operatingSystem; }
     
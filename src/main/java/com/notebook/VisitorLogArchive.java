@@ -0,0 +1,414 @@
+package com.notebook;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Compressed, append-only storage for visitor_logs history that VisitorLogArchiver moved
+// out of the database. Each segment file holds visits of one day in columnar form: the
+// time of day as delta-encoded varints, then one dictionary-encoded column per dimension
+// (a day has a handful of distinct pages, browsers or countries, so each visit costs a
+// few bytes before gzip). Segments are never modified; a day archived in several runs
+// just has several. IP addresses, user agents and session ids are not archived; unique
+// visitor counts live on in the daily sketches.
+//
+// The per-day row counts are indexed in memory when the application starts, so counts
+// over whole days read no files. Range aggregations decode the segments concurrently.
+@Component
+public class VisitorLogArchive {
+
+    private static final Logger logger = LoggerFactory.getLogger(VisitorLogArchive.class);
+
+    private static final int MAGIC = 0x4E425653; // "NBVS"
+    private static final int VERSION = 1;
+    private static final String PREFIX = "visits-";
+    private static final String SUFFIX = ".seg";
+    private static final int COLUMNS = 8;
+
+    public record ArchivedVisit(LocalDateTime visitTime, String pageVisited, String deviceType, String browser,
+                                String browserVersion, String operatingSystem, String country, String city,
+                                String referrerHost) { }
+
+    // One segment file; rows were visitor_logs ids [minId, maxId] of that day
+    static final class Segment {
+        final Path file;
+        final LocalDate day;
+        final long minId;
+        final long maxId;
+        final int rows;
+
+        Segment(Path file, LocalDate day, long minId, long maxId, int rows) {
+            this.file = file;
+            this.day = day;
+            this.minId = minId;
+            this.maxId = maxId;
+            this.rows = rows;
+        }
+    }
+
+    @Value("${visitor.archive.dir:data/visitor-archive}")
+    private String directory;
+
+    @Value("${visitor.archive.scan-threads:0}")
+    private int scanThreads;
+
+    private Path root;
+    private ThreadPoolExecutor executor;
+    private final NavigableMap<LocalDate, List<Segment>> segments = new ConcurrentSkipListMap<>();
+    private final Set<Path> published = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong archivedRows = new AtomicLong();
+    private final AtomicLong archivedBytes = new AtomicLong();
+    private final AtomicLong scans = new AtomicLong();
+    private final AtomicLong segmentsScanned = new AtomicLong();
+    private volatile long lastScanMillis;
+
+    @PostConstruct
+    public void init() throws IOException {
+        root = Paths.get(directory).toAbsolutePath();
+        Files.createDirectories(root);
+        try (Stream<Path> files = Files.list(root)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (name.startsWith(PREFIX) && name.endsWith(SUFFIX)) {
+                    try {
+                        publish(readHeader(file));
+                    } catch (IOException e) {
+                        logger.warn("Ignoring unreadable visitor archive segment {}: {}", file, e.getMessage());
+                    }
+                } else if (name.endsWith(".tmp")) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+
+        int threads = scanThreads > 0 ? scanThreads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, "visitor-archive-scan-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        executor.allowCoreThreadTimeOut(true);
+        if (!segments.isEmpty()) {
+            logger.info("Visitor archive in {}: {} visits over {} days", root, archivedRows.get(), segments.size());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // Writes the visits of one day (ids minId..maxId) as a new segment file. The segment
+    // is not visible to queries until publish(), which the archiver calls once the rows
+    // are gone from visitor_logs, so no visit is counted twice. (Segments found at startup
+    // are published right away; rows an interrupted run left behind are counted twice
+    // until the archiver's next run deletes them.)
+    Segment write(LocalDate day, long minId, long maxId, List<ArchivedVisit> visits) throws IOException {
+        Path file = root.resolve(PREFIX + day + "-" + minId + SUFFIX);
+        Path tmp = root.resolve(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(tmp), 8192)))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeLong(day.toEpochDay());
+            out.writeLong(minId);
+            out.writeLong(maxId);
+            out.writeInt(visits.size());
+
+            int previous = 0;
+            for (ArchivedVisit visit : visits) {
+                int second = visit.visitTime().toLocalTime().toSecondOfDay();
+                writeVarint(out, zigzag(second - previous));
+                previous = second;
+            }
+            for (int column = 0; column < COLUMNS; column++) {
+                Map<String, Integer> dictionary = new LinkedHashMap<>();
+                int[] codes = new int[visits.size()];
+                for (int i = 0; i < codes.length; i++) {
+                    codes[i] = dictionary.computeIfAbsent(column(visits.get(i), column), value -> dictionary.size());
+                }
+                writeVarint(out, dictionary.size());
+                for (String value : dictionary.keySet()) {
+                    out.writeBoolean(value != null);
+                    if (value != null) {
+                        out.writeUTF(value);
+                    }
+                }
+                for (int code : codes) {
+                    writeVarint(out, code);
+                }
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return new Segment(file, day, minId, maxId, visits.size());
+    }
+
+    // Makes a segment visible to queries; publishing the same file again does nothing
+    void publish(Segment segment) throws IOException {
+        if (!published.add(segment.file)) {
+            return;
+        }
+        segments.computeIfAbsent(segment.day, day -> new CopyOnWriteArrayList<>()).add(segment);
+        archivedRows.addAndGet(segment.rows);
+        archivedBytes.addAndGet(Files.size(segment.file));
+    }
+
+    // Every segment file of a day, published or not (a run may have stopped between
+    // writing a segment and deleting its rows)
+    List<Segment> segments(LocalDate day) throws IOException {
+        List<Segment> found = new ArrayList<>();
+        try (Stream<Path> files = Files.list(root)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (name.startsWith(PREFIX + day + "-") && name.endsWith(SUFFIX)) {
+                    found.add(readHeader(file));
+                }
+            }
+        }
+        return found;
+    }
+
+    // Archived visits in [from, to); either bound may be null. Whole days come from the
+    // index, only a partial first or last day is decoded
+    public long count(LocalDateTime from, LocalDateTime to) {
+        long total = 0;
+        List<Segment> partial = new ArrayList<>();
+        for (List<Segment> day : select(from, to).values()) {
+            for (Segment segment : day) {
+                if (isWholeDay(segment.day, from, to)) {
+                    total += segment.rows;
+                } else {
+                    partial.add(segment);
+                }
+            }
+        }
+        if (!partial.isEmpty()) {
+            total += this.<Boolean>scan(partial, from, to, (visit, counts) -> counts.merge(Boolean.TRUE, 1L, Long::sum))
+                         .getOrDefault(Boolean.TRUE, 0L);
+        }
+        return total;
+    }
+
+    // Decodes every segment overlapping [from, to) in parallel; the accumulator adds each
+    // visit in range to a per-segment map, and the maps are summed
+    public <K> Map<K, Long> aggregate(LocalDateTime from, LocalDateTime to, BiConsumer<ArchivedVisit, Map<K, Long>> accumulator) {
+        List<Segment> selected = new ArrayList<>();
+        select(from, to).values().forEach(selected::addAll);
+        return scan(selected, from, to, accumulator);
+    }
+
+    private NavigableMap<LocalDate, List<Segment>> select(LocalDateTime from, LocalDateTime to) {
+        NavigableMap<LocalDate, List<Segment>> selected = segments;
+        if (from != null) {
+            selected = selected.tailMap(from.toLocalDate(), true);
+        }
+        if (to != null) {
+            selected = selected.headMap(to.toLocalDate(), !to.toLocalTime().equals(LocalTime.MIDNIGHT));
+        }
+        return selected;
+    }
+
+    private static boolean isWholeDay(LocalDate day, LocalDateTime from, LocalDateTime to) {
+        return (from == null || !from.isAfter(day.atStartOfDay()))
+            && (to == null || !to.isBefore(day.plusDays(1).atStartOfDay()));
+    }
+
+    private <K> Map<K, Long> scan(Collection<Segment> selected, LocalDateTime from, LocalDateTime to,
+                                  BiConsumer<ArchivedVisit, Map<K, Long>> accumulator) {
+        long start = System.currentTimeMillis();
+        List<Future<Map<K, Long>>> futures = new ArrayList<>(selected.size());
+        for (Segment segment : selected) {
+            boolean whole = isWholeDay(segment.day, from, to);
+            futures.add(executor.submit(() -> {
+                Map<K, Long> counts = new HashMap<>();
+                for (ArchivedVisit visit : read(segment)) {
+                    if (whole || inRange(visit.visitTime(), from, to)) {
+                        accumulator.accept(visit, counts);
+                    }
+                }
+                return counts;
+            }));
+        }
+
+        Map<K, Long> totals = new HashMap<>();
+        try {
+            for (Future<Map<K, Long>> future : futures) {
+                // Bounded by the dashboard query deadline when there is one
+                future.get(Math.max(0, QueryDeadline.remainingNanos()), TimeUnit.NANOSECONDS)
+                      .forEach((key, value) -> totals.merge(key, value, Long::sum));
+            }
+        } catch (TimeoutException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw new IllegalStateException("Visitor archive scan of " + selected.size() + " segments timed out", e);
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while scanning the visitor archive", e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw new IllegalStateException("Visitor archive scan failed: " + e.getCause().getMessage(), e.getCause());
+        }
+        scans.incrementAndGet();
+        segmentsScanned.addAndGet(selected.size());
+        lastScanMillis = System.currentTimeMillis() - start;
+        return totals;
+    }
+
+    private static boolean inRange(LocalDateTime time, LocalDateTime from, LocalDateTime to) {
+        return (from == null || !time.isBefore(from)) && (to == null || time.isBefore(to));
+    }
+
+    private static Segment readHeader(Path file) throws IOException {
+        try (DataInputStream in = open(file)) {
+            LocalDate day = readPreamble(in);
+            return new Segment(file, day, in.readLong(), in.readLong(), in.readInt());
+        }
+    }
+
+    private static List<ArchivedVisit> read(Segment segment) throws IOException {
+        try (DataInputStream in = open(segment.file)) {
+            LocalDateTime dayStart = readPreamble(in).atStartOfDay();
+            in.readLong();
+            in.readLong();
+            int rows = in.readInt();
+
+            int[] seconds = new int[rows];
+            int previous = 0;
+            for (int i = 0; i < rows; i++) {
+                previous += unzigzag(readVarint(in));
+                seconds[i] = previous;
+            }
+            String[][] columns = new String[COLUMNS][rows];
+            for (int column = 0; column < COLUMNS; column++) {
+                String[] dictionary = new String[readVarint(in)];
+                for (int i = 0; i < dictionary.length; i++) {
+                    dictionary[i] = in.readBoolean() ? in.readUTF() : null;
+                }
+                for (int i = 0; i < rows; i++) {
+                    columns[column][i] = dictionary[readVarint(in)];
+                }
+            }
+
+            List<ArchivedVisit> visits = new ArrayList<>(rows);
+            for (int i = 0; i < rows; i++) {
+                visits.add(new ArchivedVisit(dayStart.plusSeconds(seconds[i]), columns[0][i], columns[1][i],
+                    columns[2][i], columns[3][i], columns[4][i], columns[5][i], columns[6][i], columns[7][i]));
+            }
+            return visits;
+        }
+    }
+
+    private static DataInputStream open(Path file) throws IOException {
+        return new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(file), 8192)));
+    }
+
+    private static LocalDate readPreamble(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("not a visitor archive segment");
+        }
+        int version = in.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("unsupported segment version " + version);
+        }
+        return LocalDate.ofEpochDay(in.readLong());
+    }
+
+    private static String column(ArchivedVisit visit, int column) {
+        switch (column) {
+            case 0: return visit.pageVisited();
+            case 1: return visit.deviceType();
+            case 2: return visit.browser();
+            case 3: return visit.browserVersion();
+            case 4: return visit.operatingSystem();
+            case 5: return visit.country();
+            case 6: return visit.city();
+            default: return visit.referrerHost();
+        }
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarint(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarint(DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("malformed varint");
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("directory", root.toString());
+        metrics.put("days", segments.size());
+        metrics.put("segments", segments.values().stream().mapToInt(List::size).sum());
+        metrics.put("oldestDay", segments.isEmpty() ? null : segments.firstKey());
+        metrics.put("rows", archivedRows.get());
+        metrics.put("bytes", archivedBytes.get());
+        metrics.put("scans", scans.get());
+        metrics.put("segmentsScanned", segmentsScanned.get());
+        metrics.put("lastScanMillis", lastScanMillis);
+        return metrics;
+    }
+}
@@ -0,0 +1,167 @@
+package com.notebook;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Moves visitor_logs rows older than visitor.archive.after-days into VisitorLogArchive,
+// a day at a time, so the hot table only holds recent visits. Only rows the hourly
+// rollups have already consumed are moved. Each batch is written as a segment first and
+// deleted from the table second, by id range; a run that stops in between leaves a
+// segment whose rows are deleted again (idempotently) by the next run before anything
+// else of that day is archived. after-days=0 disables archiving.
+@Component
+public class VisitorLogArchiver {
+
+    private static final Logger logger = LoggerFactory.getLogger(VisitorLogArchiver.class);
+
+    private static final int DELETE_BATCH_SIZE = 5000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private VisitorLogArchive visitorLogArchive;
+
+    @Autowired
+    private VisitorRollupService visitorRollupService;
+
+    @Value("${visitor.archive.after-days:0}")
+    private int afterDays;
+
+    @Value("${visitor.archive.max-segment-rows:100000}")
+    private int maxSegmentRows;
+
+    @Value("${visitor.log.retention-days:0}")
+    private int retentionDays;
+
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong rowsArchived = new AtomicLong();
+    private final AtomicLong segmentsWritten = new AtomicLong();
+    private volatile long lastRunMillis;
+    private volatile LocalDateTime lastRunAt;
+
+    @Scheduled(initialDelayString = "${visitor.archive.initial-delay-ms:60000}",
+               fixedDelayString = "${visitor.archive.interval-ms:3600000}")
+    public synchronized void archive() {
+        if (afterDays <= 0) {
+            return;
+        }
+        if (retentionDays > 0 && retentionDays <= afterDays) {
+            logger.warn("visitor.log.retention-days ({}) removes visits before they are archived after {} days",
+                        retentionDays, afterDays);
+        }
+        long start = System.currentTimeMillis();
+        long archived = 0;
+        try {
+            LocalDate cutoff = LocalDate.now().minusDays(afterDays);
+            long rolledUp = visitorRollupService.rolledUpThrough();
+            Timestamp oldest = jdbcTemplate.queryForObject(
+                "SELECT MIN(visit_time) FROM visitor_logs WHERE visit_time < ?", Timestamp.class,
+                Timestamp.valueOf(cutoff.atStartOfDay()));
+            if (oldest != null) {
+                for (LocalDate day = oldest.toLocalDateTime().toLocalDate(); day.isBefore(cutoff); day = day.plusDays(1)) {
+                    archived += archiveDay(day, rolledUp);
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Archiving visitor_logs failed: {}", e.getMessage(), e);
+        }
+        runs.incrementAndGet();
+        lastRunMillis = System.currentTimeMillis() - start;
+        lastRunAt = LocalDateTime.now();
+        if (archived > 0) {
+            logger.info("Archived {} visitor_logs rows older than {} days in {} ms", archived, afterDays, lastRunMillis);
+        }
+    }
+
+    private long archiveDay(LocalDate day, long rolledUp) throws IOException {
+        Timestamp dayStart = Timestamp.valueOf(day.atStartOfDay());
+        Timestamp dayEnd = Timestamp.valueOf(day.plusDays(1).atStartOfDay());
+        for (VisitorLogArchive.Segment segment : visitorLogArchive.segments(day)) {
+            deleteRows(dayStart, dayEnd, segment.minId, segment.maxId);
+            visitorLogArchive.publish(segment);
+        }
+
+        long archived = 0;
+        while (true) {
+            List<Long> ids = new ArrayList<>();
+            List<VisitorLogArchive.ArchivedVisit> visits = new ArrayList<>();
+            jdbcTemplate.query(
+                "SELECT id, visit_time, page_visited, device_type, browser, browser_version, operating_system, " +
+                "country, city, referrer FROM visitor_logs WHERE visit_time >= ? AND visit_time < ? AND id <= ? " +
+                "ORDER BY id LIMIT " + maxSegmentRows,
+                rs -> {
+                    ids.add(rs.getLong(1));
+                    visits.add(new VisitorLogArchive.ArchivedVisit(
+                        rs.getTimestamp(2).toLocalDateTime(), rs.getString(3), rs.getString(4), rs.getString(5),
+                        rs.getString(6), rs.getString(7), rs.getString(8), rs.getString(9), referrerHost(rs.getString(10))));
+                }, dayStart, dayEnd, rolledUp);
+            if (visits.isEmpty()) {
+                return archived;
+            }
+
+            long minId = ids.get(0);
+            long maxId = ids.get(ids.size() - 1);
+            VisitorLogArchive.Segment segment = visitorLogArchive.write(day, minId, maxId, visits);
+            segmentsWritten.incrementAndGet();
+            deleteRows(dayStart, dayEnd, minId, maxId);
+            visitorLogArchive.publish(segment);
+            rowsArchived.addAndGet(visits.size());
+            archived += visits.size();
+            if (visits.size() < maxSegmentRows) {
+                return archived;
+            }
+        }
+    }
+
+    // The selected rows are exactly the day's rows in [minId, maxId], as ids only grow
+    private void deleteRows(Timestamp dayStart, Timestamp dayEnd, long minId, long maxId) {
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update(
+                "DELETE FROM visitor_logs WHERE visit_time >= ? AND visit_time < ? AND id BETWEEN ? AND ? LIMIT "
+                    + DELETE_BATCH_SIZE, dayStart, dayEnd, minId, maxId);
+        } while (deleted == DELETE_BATCH_SIZE);
+    }
+
+    // Only the referring site is kept; full referrer URLs would defeat the dictionary
+    private static String referrerHost(String referrer) {
+        if (referrer == null || referrer.isBlank()) {
+            return null;
+        }
+        try {
+            String host = URI.create(referrer.trim()).getHost();
+            return host != null ? host.toLowerCase() : "Other";
+        } catch (IllegalArgumentException e) {
+            return "Other";
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("afterDays", afterDays);
+        metrics.put("runs", runs.get());
+        metrics.put("rowsArchived", rowsArchived.get());
+        metrics.put("segmentsWritten", segmentsWritten.get());
+        metrics.put("lastRunMillis", lastRunMillis);
+        metrics.put("lastRunAt", lastRunAt);
+        metrics.put("archive", visitorLogArchive.getMetrics());
+        return metrics;
+    }
+}
@@ -0,0 +1,193 @@
+package com.notebook;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Optional time partitioning and retention for visitor_logs.
+//
+// With visitor.log.partitioning=DAILY or MONTHLY on MySQL, the table is converted once to
+// RANGE COLUMNS(visit_time) partitions (the primary key becomes (id, visit_time), as MySQL
+// requires), partitions are kept created partitions-ahead periods in advance, and whole
+// partitions older than visitor.log.retention-days are dropped, which costs nothing
+// compared to deleting their rows. Without partitioning (or on the H2 fallback) retention
+// is applied with batched DELETEs on the visit_time index. retention-days=0 keeps all.
+@Component
+public class VisitorLogPartitionManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(VisitorLogPartitionManager.class);
+
+    private static final String FUTURE_PARTITION = "p_future";
+    private static final String HISTORY_PARTITION = "p_history";
+    private static final int DELETE_BATCH_SIZE = 5000;
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'p'yyyyMMdd");
+
+    public enum Partitioning { NONE, DAILY, MONTHLY }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${visitor.log.partitioning:NONE}")
+    private Partitioning partitioning;
+
+    @Value("${visitor.log.retention-days:0}")
+    private int retentionDays;
+
+    @Value("${visitor.log.partitions-ahead:3}")
+    private int partitionsAhead;
+
+    private final AtomicLong partitionsDropped = new AtomicLong();
+    private final AtomicLong rowsPurged = new AtomicLong();
+    private volatile int partitionCount;
+    private volatile LocalDateTime lastMaintenanceAt;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void maintainOnStartup() {
+        maintain();
+    }
+
+    @Scheduled(cron = "${visitor.log.partition-maintenance-cron:0 15 0 * * *}")
+    public synchronized void maintain() {
+        try {
+            if (partitioning != Partitioning.NONE && isMySql()) {
+                maintainPartitions();
+            } else {
+                if (partitioning != Partitioning.NONE) {
+                    logger.info("visitor_logs partitioning needs MySQL; applying retention with batched deletes");
+                }
+                purgeByDelete();
+            }
+            lastMaintenanceAt = LocalDateTime.now();
+        } catch (Exception e) {
+            logger.error("visitor_logs partition maintenance failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private void maintainPartitions() {
+        List<String[]> partitions = listPartitions();
+        LocalDate currentStart = periodStart(LocalDate.now());
+        if (partitions.isEmpty()) {
+            logger.warn("Partitioning visitor_logs by {} (one-time table rebuild)...", partitioning);
+            jdbcTemplate.execute("ALTER TABLE visitor_logs DROP PRIMARY KEY, ADD PRIMARY KEY (id, visit_time)");
+            jdbcTemplate.execute("ALTER TABLE visitor_logs PARTITION BY RANGE COLUMNS(visit_time) ("
+                + "PARTITION " + HISTORY_PARTITION + " VALUES LESS THAN ('" + currentStart + " 00:00:00'), "
+                + "PARTITION " + FUTURE_PARTITION + " VALUES LESS THAN (MAXVALUE))");
+            partitions = listPartitions();
+        }
+
+        // Split periods off p_future up to partitions-ahead periods from now; p_future
+        // is empty by then, so the reorganisation moves no rows
+        LocalDate lastBound = currentStart;
+        for (String[] partition : partitions) {
+            LocalDate bound = upperBound(partition[1]);
+            if (bound != null && bound.isAfter(lastBound)) {
+                lastBound = bound;
+            }
+        }
+        LocalDate horizon = currentStart;
+        for (int i = 0; i <= partitionsAhead; i++) {
+            horizon = nextPeriod(horizon);
+        }
+        while (lastBound.isBefore(horizon)) {
+            LocalDate next = nextPeriod(lastBound);
+            jdbcTemplate.execute("ALTER TABLE visitor_logs REORGANIZE PARTITION " + FUTURE_PARTITION + " INTO ("
+                + "PARTITION " + lastBound.format(PARTITION_NAME) + " VALUES LESS THAN ('" + next + " 00:00:00'), "
+                + "PARTITION " + FUTURE_PARTITION + " VALUES LESS THAN (MAXVALUE))");
+            lastBound = next;
+        }
+
+        if (retentionDays > 0) {
+            LocalDate cutoff = LocalDate.now().minusDays(retentionDays);
+            List<String> expired = new ArrayList<>();
+            for (String[] partition : listPartitions()) {
+                LocalDate bound = upperBound(partition[1]);
+                if (bound != null && !bound.isAfter(cutoff)) {
+                    expired.add(partition[0]);
+                }
+            }
+            if (!expired.isEmpty()) {
+                jdbcTemplate.execute("ALTER TABLE visitor_logs DROP PARTITION " + String.join(", ", expired));
+                partitionsDropped.addAndGet(expired.size());
+                logger.info("Dropped expired visitor_logs partitions {}", expired);
+            }
+        }
+        partitionCount = listPartitions().size();
+    }
+
+    private void purgeByDelete() {
+        if (retentionDays <= 0) {
+            return;
+        }
+        Timestamp cutoff = Timestamp.valueOf(LocalDate.now().minusDays(retentionDays).atStartOfDay());
+        long purged = 0;
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update(
+                "DELETE FROM visitor_logs WHERE visit_time < ? LIMIT " + DELETE_BATCH_SIZE, cutoff);
+            purged += deleted;
+        } while (deleted == DELETE_BATCH_SIZE);
+        if (purged > 0) {
+            rowsPurged.addAndGet(purged);
+            logger.info("Purged {} visitor_logs rows older than {} days", purged, retentionDays);
+        }
+    }
+
+    // {name, description} in partition order
+    private List<String[]> listPartitions() {
+        return jdbcTemplate.query(
+            "SELECT PARTITION_NAME, PARTITION_DESCRIPTION FROM information_schema.PARTITIONS " +
+            "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'visitor_logs' AND PARTITION_NAME IS NOT NULL " +
+            "ORDER BY PARTITION_ORDINAL_POSITION",
+            (rs, rowNum) -> new String[] { rs.getString(1), rs.getString(2) });
+    }
+
+    // RANGE COLUMNS descriptions look like '2024-05-01 00:00:00'; MAXVALUE has no bound
+    private static LocalDate upperBound(String description) {
+        if (description == null || description.contains("MAXVALUE")) {
+            return null;
+        }
+        return LocalDate.parse(description.replace("'", "").trim().substring(0, 10));
+    }
+
+    private LocalDate periodStart(LocalDate day) {
+        return partitioning == Partitioning.MONTHLY ? day.withDayOfMonth(1) : day;
+    }
+
+    private LocalDate nextPeriod(LocalDate start) {
+        return partitioning == Partitioning.MONTHLY ? start.plusMonths(1) : start.plusDays(1);
+    }
+
+    private boolean isMySql() {
+        String product = jdbcTemplate.execute(
+            (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+        return "MySQL".equalsIgnoreCase(product);
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("partitioning", partitioning);
+        metrics.put("retentionDays", retentionDays);
+        metrics.put("partitions", partitionCount);
+        metrics.put("partitionsDropped", partitionsDropped.get());
+        metrics.put("rowsPurged", rowsPurged.get());
+        metrics.put("lastMaintenanceAt", lastMaintenanceAt);
+        return metrics;
+    }
+}
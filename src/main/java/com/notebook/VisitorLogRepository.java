@@ -23,35 +23,15 @@ public interface VisitorLogRepository extends JpaRepository<VisitorLog, Long> {
     // Find visits by operating system
     List<VisitorLog> findByOperatingSystemOrderByVisitTimeDesc(String operatingSystem);
     
-    // Find unique visitors (by IP) in date range
-    @Query("SELECT DISTINCT v.ipAddress FROM VisitorLog v WHERE v.visitTime BETWEEN :start AND :end")
-    List<String> findUniqueVisitorsByDateRange(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
-    
-    // Count visits by page
-    @Query("SELECT v.pageVisited, COUNT(v) FROM VisitorLog v GROUP BY v.pageVisited ORDER BY COUNT(v) DESC")
-    List<Object[]> countVisitsByPage();
-    
-    // Count visits by device type
-    @Query("SELECT v.deviceType, COUNT(v) FROM VisitorLog v GROUP BY v.deviceType ORDER BY COUNT(v) DESC")
-    List<Object[]> countVisitsByDeviceType();
-    
-    // Count visits by browser
-    @Query("SELECT v.browser, COUNT(v) FROM VisitorLog v GROUP BY v.browser ORDER BY COUNT(v) DESC")
-    List<Object[]> countVisitsByBrowser();
-    
-    // Count visits by operating system
-    @Query("SELECT v.operatingSystem, COUNT(v) FROM VisitorLog v GROUP BY v.operatingSystem ORDER BY COUNT(v) DESC")
-    List<Object[]> countVisitsByOperatingSystem();
-    
     // Get recent visits
     List<VisitorLog> findTop100ByOrderByVisitTimeDesc();
     
     // Count total visits
     long count();
     
-    // Count visits today
-    @Query("SELECT COUNT(v) FROM VisitorLog v WHERE DATE(v.visitTime) = CURRENT_DATE")
-    long countTodayVisits();
+    // Count visits in [start, end); a plain range on visit_time so the index is used
+    @Query("SELECT COUNT(v) FROM VisitorLog v WHERE v.visitTime >= :start AND v.visitTime < :end")
+    long countVisitsBetween(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
     
     // Count visits this week
     @Query("SELECT COUNT(v) FROM VisitorLog v WHERE v.visitTime >= :weekStart")
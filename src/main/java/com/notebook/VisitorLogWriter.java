@@ -0,0 +1,242 @@
+package com.notebook;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Buffers visitor log rows in a bounded queue and inserts them in batches from a
+// background thread, so page requests never wait on a visitor_logs insert.
+@Component
+public class VisitorLogWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(VisitorLogWriter.class);
+
+    private static final String INSERT_SQL =
+        "INSERT INTO visitor_logs (ip_address, user_agent, visit_time, page_visited, referrer, country, city, " +
+        "device_type, browser, browser_version, operating_system, session_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    public enum OverflowPolicy {
+        DROP_NEWEST,  // discard the visit being offered
+        DROP_OLDEST,  // evict the oldest queued visit to make room
+        BLOCK         // wait up to offer-timeout-ms, then discard
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private UniqueVisitorSketches uniqueVisitorSketches;
+
+    @Autowired
+    private LiveCounterFeed liveCounterFeed;
+
+    @Value("${visitor.log.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${visitor.log.batch-size:200}")
+    private int batchSize;
+
+    @Value("${visitor.log.flush-interval-ms:1000}")
+    private long flushIntervalMs;
+
+    @Value("${visitor.log.overflow-policy:DROP_NEWEST}")
+    private OverflowPolicy overflowPolicy;
+
+    @Value("${visitor.log.offer-timeout-ms:5}")
+    private long offerTimeoutMs;
+
+    private BlockingQueue<VisitorLog> queue;
+    private Thread writerThread;
+    private volatile boolean running;
+
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        writerThread = new Thread(this::runLoop, "visitor-log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        logger.info("Visitor log writer started (capacity={}, batchSize={}, flushInterval={}ms, overflow={})",
+                    queueCapacity, batchSize, flushIntervalMs, overflowPolicy);
+    }
+
+    // Never blocks longer than offer-timeout-ms; returns false if the visit was dropped.
+    public boolean submit(VisitorLog visitorLog) {
+        boolean accepted;
+        switch (overflowPolicy) {
+            case DROP_OLDEST:
+                accepted = queue.offer(visitorLog);
+                while (!accepted) {
+                    if (queue.poll() != null) {
+                        dropped.incrementAndGet();
+                    }
+                    accepted = queue.offer(visitorLog);
+                }
+                break;
+            case BLOCK:
+                try {
+                    accepted = queue.offer(visitorLog, offerTimeoutMs, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    accepted = false;
+                }
+                break;
+            default:
+                accepted = queue.offer(visitorLog);
+        }
+
+        if (accepted) {
+            enqueued.incrementAndGet();
+        } else {
+            dropped.incrementAndGet();
+        }
+        return accepted;
+    }
+
+    private void runLoop() {
+        List<VisitorLog> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                // Flush when the batch is full or the interval elapses, whichever comes first
+                while (batch.size() < batchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    VisitorLog next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    queue.drainTo(batch, batchSize - batch.size());
+                }
+            } catch (InterruptedException e) {
+                // Treat an interrupt as a shutdown request; keep draining until the queue is empty
+                running = false;
+            }
+            flush(batch);
+        }
+    }
+
+    private void flush(List<VisitorLog> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<VisitorLog> saved;
+        try {
+            // One transaction, so a failed batch leaves nothing behind for the retry to duplicate
+            new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), VisitorLogWriter::bind));
+            batches.incrementAndGet();
+            saved = batch;
+        } catch (RuntimeException e) {
+            logger.warn("Batch insert of {} visitor log rows failed, retrying row by row: {}",
+                        batch.size(), e.getMessage());
+            saved = insertRowByRow(batch);
+        }
+        written.addAndGet(saved.size());
+        try {
+            if (!saved.isEmpty()) {
+                uniqueVisitorSketches.record(saved);
+                liveCounterFeed.recordVisits(saved.size());
+            }
+        } catch (RuntimeException e) {
+            // The rows are stored; don't break the writer thread
+            logger.error("Failed to record {} stored visits in the live counters: {}", saved.size(), e.getMessage());
+        } finally {
+            batch.clear();
+        }
+    }
+
+    // One bad row must not cost the rest of the batch; only rows that fail on their
+    // own are counted as failed. Returns the rows stored.
+    private List<VisitorLog> insertRowByRow(List<VisitorLog> batch) {
+        List<VisitorLog> saved = new ArrayList<>(batch.size());
+        for (VisitorLog visitorLog : batch) {
+            try {
+                jdbcTemplate.update(INSERT_SQL, ps -> bind(ps, visitorLog));
+                saved.add(visitorLog);
+            } catch (RuntimeException e) {
+                // Log error but don't break the writer thread
+                failed.incrementAndGet();
+                logger.error("Failed to write visitor log row for {}: {}", visitorLog.getPageVisited(), e.getMessage());
+            }
+        }
+        return saved;
+    }
+
+    private static void bind(PreparedStatement ps, VisitorLog v) throws SQLException {
+        ps.setString(1, v.getIpAddress());
+        ps.setString(2, v.getUserAgent());
+        ps.setTimestamp(3, Timestamp.valueOf(v.getVisitTime()));
+        ps.setString(4, v.getPageVisited());
+        ps.setString(5, v.getReferrer());
+        ps.setString(6, v.getCountry());
+        ps.setString(7, v.getCity());
+        ps.setString(8, v.getDeviceType());
+        ps.setString(9, v.getBrowser());
+        ps.setString(10, v.getBrowserVersion());
+        ps.setString(11, v.getOperatingSystem());
+        ps.setString(12, v.getSessionId());
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        logger.info("Stopping visitor log writer, flushing {} queued visits...", queue.size());
+        // The loop notices within one flush interval and drains the queue before exiting
+        running = false;
+        writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        logger.info("Visitor log writer stopped (written={}, dropped={}, failed={})",
+                    written.get(), dropped.get(), failed.get());
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("queueDepth", queue.size());
+        metrics.put("queueCapacity", queueCapacity);
+        metrics.put("overflowPolicy", overflowPolicy.name());
+        metrics.put("enqueued", enqueued.get());
+        metrics.put("dropped", dropped.get());
+        metrics.put("written", written.get());
+        metrics.put("failed", failed.get());
+        metrics.put("batches", batches.get());
+        return metrics;
+    }
+}
@@ -5,11 +5,10 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Map;
-import java.util.HashMap;
-import java.util.UUID;
 
 @Service
 public class VisitorLoggingService {
@@ -17,129 +16,152 @@ public class VisitorLoggingService {
     @Autowired
     private VisitorLogRepository visitorLogRepository;
     
+    @Autowired
+    private VisitorLogWriter visitorLogWriter;
+    
+    @Autowired
+    private VisitorRollupService visitorRollupService;
+    
+    @Autowired
+    private UniqueVisitorSketches uniqueVisitorSketches;
+    
+    @Autowired
+    private UserAgentClassifier userAgentClassifier;
+    
+    @Autowired
+    private ClientAddressResolver clientAddressResolver;
+    
+    @Autowired
+    private IpGeolocationService ipGeolocationService;
+    
+    @Autowired
+    private VisitorSessionCookie visitorSessionCookie;
+    
+    @Autowired
+    private VisitorLogArchive visitorLogArchive;
+    
     public void logVisitor(String pageVisited) {
+        ServletRequestAttributes attributes = (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            logVisitor(attributes.getRequest(), attributes.getResponse(), pageVisited);
+        }
+    }
+    
+    // The response carries the visitor session cookie; may be null
+    public void logVisitor(HttpServletRequest request, HttpServletResponse response, String pageVisited) {
         try {
-            ServletRequestAttributes attributes = (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
-            if (attributes != null) {
-                HttpServletRequest request = attributes.getRequest();
-                
-                String ipAddress = getClientIpAddress(request);
-                String userAgent = request.getHeader("User-Agent");
-                String referrer = request.getHeader("Referer");
-                String sessionId = getOrCreateSessionId(request);
-                
-                // Create visitor log entry
-                VisitorLog visitorLog = new VisitorLog(
-                    ipAddress, 
-                    userAgent, 
-                    LocalDateTime.now(), 
-                    pageVisited, 
-                    referrer, 
-                    sessionId
-                );
-                
-                // Try to get location info (basic implementation)
-                try {
-                    Map<String, String> locationInfo = getLocationInfo(ipAddress);
-                    visitorLog.setCountry(locationInfo.get("country"));
-                    visitorLog.setCity(locationInfo.get("city"));
-                } catch (Exception e) {
-                    // If geolocation fails, continue without it
-                    visitorLog.setCountry("Unknown");
-                    visitorLog.setCity("Unknown");
-                }
-                
-                // Save to database
-                visitorLogRepository.save(visitorLog);
-            }
+            String ipAddress = clientAddressResolver.resolve(request);
+            String userAgent = request.getHeader("User-Agent");
+            String referrer = request.getHeader("Referer");
+            String sessionId = visitorSessionCookie.resolve(request, response);
+            
+            // Create visitor log entry
+            VisitorLog visitorLog = new VisitorLog(
+                ipAddress, 
+                truncate(userAgent, 1000), 
+                LocalDateTime.now(), 
+                pageVisited, 
+                truncate(referrer, 500), 
+                sessionId
+            );
+            
+            UserAgentClassifier.Classification agent = userAgentClassifier.classify(userAgent);
+            visitorLog.setDeviceType(agent.getDeviceType());
+            visitorLog.setBrowser(agent.getBrowser());
+            visitorLog.setBrowserVersion(agent.getBrowserVersion());
+            visitorLog.setOperatingSystem(agent.getOperatingSystem());
+            
+            IpGeolocationService.Location location = ipGeolocationService.lookup(ipAddress);
+            visitorLog.setCountry(truncate(location.getCountry(), 100));
+            visitorLog.setCity(truncate(location.getCity(), 100));
+            
+            // Hand off to the background writer; never blocks on the database
+            visitorLogWriter.submit(visitorLog);
         } catch (Exception e) {
             // Log error but don't break the application
             System.err.println("Error logging visitor: " + e.getMessage());
         }
     }
     
-    private String getClientIpAddress(HttpServletRequest request) {
-        String xForwardedFor = request.getHeader("X-Forwarded-For");
-        if (xForwardedFor != null && !xForwardedFor.isEmpty() && !"unknown".equalsIgnoreCase(xForwardedFor)) {
-            return xForwardedFor.split(",")[0];
-        }
-        
-        String xRealIp = request.getHeader("X-Real-IP");
-        if (xRealIp != null && !xRealIp.isEmpty() && !"unknown".equalsIgnoreCase(xRealIp)) {
-            return xRealIp;
-        }
-        
-        return request.getRemoteAddr();
-    }
-    
-    private String getOrCreateSessionId(HttpServletRequest request) {
-        String sessionId = (String) request.getSession().getAttribute("visitorSessionId");
-        if (sessionId == null) {
-            sessionId = UUID.randomUUID().toString().substring(0, 8);
-            request.getSession().setAttribute("visitorSessionId", sessionId);
-        }
-        return sessionId;
-    }
-    
-    private Map<String, String> getLocationInfo(String ipAddress) {
-        // This is a basic implementation
-        // In a production environment, you might want to use a service like MaxMind GeoIP2
-        Map<String, String> locationInfo = new HashMap<>();
-        
-        // For now, we'll return basic info based on IP patterns
-        if (ipAddress.startsWith("127.") || ipAddress.startsWith("192.168.") || ipAddress.startsWith("10.")) {
-            locationInfo.put("country", "Local");
-            locationInfo.put("city", "Local Network");
-        } else {
-            locationInfo.put("country", "Unknown");
-            locationInfo.put("city", "Unknown");
-        }
-        
-        return locationInfo;
+    // Cap values at their visitor_logs column length (user_agent VARCHAR(1000),
+    // referrer VARCHAR(500), country and city VARCHAR(100)); one oversized value
+    // would otherwise fail the writer's whole batch
+    private static String truncate(String value, int maxLength) {
+        return value != null && value.length() > maxLength ? value.substring(0, maxLength) : value;
     }
     
-    // Analytics methods
+    // Analytics methods; visit counts include history moved to the archive
     public long getTotalVisits() {
-        return visitorLogRepository.count();
+        return visitorLogRepository.count() + visitorLogArchive.count(null, null);
     }
     
     public long getTodayVisits() {
-        return visitorLogRepository.countTodayVisits();
+        LocalDateTime todayStart = LocalDate.now().atStartOfDay();
+        return visitorLogRepository.countVisitsBetween(todayStart, todayStart.plusDays(1))
+             + visitorLogArchive.count(todayStart, todayStart.plusDays(1));
     }
     
     public long getWeekVisits() {
         LocalDateTime weekStart = LocalDateTime.now().minusDays(7);
-        return visitorLogRepository.countWeekVisits(weekStart);
+        return visitorLogRepository.countWeekVisits(weekStart) + visitorLogArchive.count(weekStart, null);
     }
     
     public long getMonthVisits() {
         LocalDateTime monthStart = LocalDateTime.now().minusDays(30);
-        return visitorLogRepository.countMonthVisits(monthStart);
+        return visitorLogRepository.countMonthVisits(monthStart) + visitorLogArchive.count(monthStart, null);
     }
     
+    // Breakdowns come from the hourly rollups; from/to bound [from, to) and may be null
     public List<Object[]> getVisitsByPage() {
-        return visitorLogRepository.countVisitsByPage();
+        return getVisitsByPage(null, null);
+    }
+    
+    public List<Object[]> getVisitsByPage(LocalDateTime from, LocalDateTime to) {
+        return visitorRollupService.countBy(VisitorRollupService.Dimension.PAGE, from, to);
     }
     
     public List<Object[]> getVisitsByDeviceType() {
-        return visitorLogRepository.countVisitsByDeviceType();
+        return getVisitsByDeviceType(null, null);
+    }
+    
+    public List<Object[]> getVisitsByDeviceType(LocalDateTime from, LocalDateTime to) {
+        return visitorRollupService.countBy(VisitorRollupService.Dimension.DEVICE, from, to);
     }
     
     public List<Object[]> getVisitsByBrowser() {
-        return visitorLogRepository.countVisitsByBrowser();
+        return getVisitsByBrowser(null, null);
+    }
+    
+    public List<Object[]> getVisitsByBrowser(LocalDateTime from, LocalDateTime to) {
+        return visitorRollupService.countBy(VisitorRollupService.Dimension.BROWSER, from, to);
     }
     
     public List<Object[]> getVisitsByOperatingSystem() {
-        return visitorLogRepository.countVisitsByOperatingSystem();
+        return getVisitsByOperatingSystem(null, null);
+    }
+    
+    public List<Object[]> getVisitsByOperatingSystem(LocalDateTime from, LocalDateTime to) {
+        return visitorRollupService.countBy(VisitorRollupService.Dimension.OS, from, to);
     }
     
     public List<VisitorLog> getRecentVisits() {
         return visitorLogRepository.findTop100ByOrderByVisitTimeDesc();
     }
     
-    public List<String> getUniqueVisitorsToday() {
-        LocalDateTime todayStart = LocalDateTime.now().withHour(0).withMinute(0).withSecond(0);
-        LocalDateTime todayEnd = LocalDateTime.now().withHour(23).withMinute(59).withSecond(59);
-        return visitorLogRepository.findUniqueVisitorsByDateRange(todayStart, todayEnd);
+    // Unique counts are HyperLogLog estimates (about 1.6% error) over whole days [from, to]
+    public long getUniqueVisitorsToday() {
+        return getUniqueVisitors(LocalDate.now(), LocalDate.now());
+    }
+    
+    public long getUniqueVisitors(LocalDate from, LocalDate to) {
+        return uniqueVisitorSketches.estimate(UniqueVisitorSketches.Kind.VISITORS, "", from, to);
+    }
+    
+    public long getUniqueSessions(LocalDate from, LocalDate to) {
+        return uniqueVisitorSketches.estimate(UniqueVisitorSketches.Kind.SESSIONS, "", from, to);
+    }
+    
+    public List<Object[]> getUniqueVisitorsByPage(LocalDate from, LocalDate to) {
+        return uniqueVisitorSketches.estimateByKey(UniqueVisitorSketches.Kind.PAGE_VISITORS, from, to);
     }
 } 
\ No newline at end of file
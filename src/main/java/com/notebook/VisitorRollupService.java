@@ -0,0 +1,272 @@
+package com.notebook;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Maintains visitor_hourly_rollups from visitor_logs. A scheduled job consumes new
+// visit rows past a high-water mark (the last visitor_logs id rolled up) in chunks and
+// adds them to the hourly counters in the same transaction that advances the mark, so
+// every visit is counted exactly once. Breakdown queries sum the hours in range and add
+// the few visits past the mark, so they are exact without scanning raw history.
+// visitor_logs ids grow in commit order because VisitorLogWriter is the only writer.
+// Rebuilding a range also counts visits VisitorLogArchiver has moved to the archive.
+@Service
+public class VisitorRollupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(VisitorRollupService.class);
+
+    private static final String WATERMARK_NAME = "visitor_hourly_rollups";
+
+    private static final int MAX_VALUE_LENGTH = 200;
+
+    private static final String UPSERT_SQL =
+        "INSERT INTO visitor_hourly_rollups (bucket_hour, dimension, dimension_value, visits) VALUES (?, ?, ?, ?) " +
+        "ON DUPLICATE KEY UPDATE visits = visits + ?";
+
+    public enum Dimension {
+        PAGE("page_visited"),
+        DEVICE("device_type"),
+        BROWSER("browser"),
+        OS("operating_system");
+
+        private final String sqlColumn;
+
+        Dimension(String sqlColumn) {
+            this.sqlColumn = sqlColumn;
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private VisitorLogArchive visitorLogArchive;
+
+    @Value("${visitor.rollup.chunk-size:10000}")
+    private int chunkSize;
+
+    // Held for writing while rollups and the mark move, so readers never count a chunk
+    // both in the rollups and in the tail
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final AtomicLong rowsRolledUp = new AtomicLong();
+    private final AtomicLong runs = new AtomicLong();
+    private volatile long lastRunMillis;
+    private volatile LocalDateTime lastRunAt;
+
+    @Scheduled(initialDelayString = "${visitor.rollup.initial-delay-ms:5000}",
+               fixedDelayString = "${visitor.rollup.interval-ms:60000}")
+    public void rollUp() {
+        long start = System.currentTimeMillis();
+        long total = 0;
+        int rows;
+        // Catch up in chunks; on first start this backfills all existing history
+        do {
+            rows = rollUpChunk();
+            total += rows;
+        } while (rows == chunkSize);
+
+        runs.incrementAndGet();
+        lastRunMillis = System.currentTimeMillis() - start;
+        lastRunAt = LocalDateTime.now();
+        if (total >= chunkSize) {
+            logger.info("Rolled up {} visits in {} ms", total, lastRunMillis);
+        }
+    }
+
+    private int rollUpChunk() {
+        lock.writeLock().lock();
+        try {
+            return new TransactionTemplate(transactionManager).execute(status -> {
+                long watermark = lockWatermark();
+                Map<List<Object>, Long> counts = new HashMap<>();
+                long[] last = new long[] { watermark, 0 };
+                jdbcTemplate.query(
+                    "SELECT id, visit_time, page_visited, device_type, browser, operating_system " +
+                    "FROM visitor_logs WHERE id > ? ORDER BY id LIMIT " + chunkSize,
+                    rs -> {
+                        last[0] = rs.getLong(1);
+                        last[1]++;
+                        LocalDateTime hour = rs.getTimestamp(2).toLocalDateTime().truncatedTo(ChronoUnit.HOURS);
+                        Dimension[] dimensions = Dimension.values();
+                        for (int i = 0; i < dimensions.length; i++) {
+                            counts.merge(List.of(hour, dimensions[i].name(), normalize(rs.getString(3 + i))), 1L, Long::sum);
+                        }
+                    }, watermark);
+
+                if (last[1] > 0) {
+                    writeCounts(counts);
+                    jdbcTemplate.update("UPDATE rollup_watermarks SET last_id = ? WHERE name = ?", last[0], WATERMARK_NAME);
+                    rowsRolledUp.addAndGet(last[1]);
+                }
+                return (int) last[1];
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Recomputes the rollups of [from, to) from visitor_logs, for repairing history or
+    // backfilling after rows were imported behind the mark. Returns the visits counted.
+    public long rebuild(LocalDateTime from, LocalDateTime to) {
+        LocalDateTime start = from.truncatedTo(ChronoUnit.HOURS);
+        LocalDateTime end = to.truncatedTo(ChronoUnit.HOURS);
+        lock.writeLock().lock();
+        try {
+            return new TransactionTemplate(transactionManager).execute(status -> {
+                long watermark = lockWatermark();
+                jdbcTemplate.update("DELETE FROM visitor_hourly_rollups WHERE bucket_hour >= ? AND bucket_hour < ?",
+                                    Timestamp.valueOf(start), Timestamp.valueOf(end));
+
+                Map<List<Object>, Long> counts = new HashMap<>();
+                long[] visits = new long[1];
+                jdbcTemplate.query(
+                    "SELECT visit_time, page_visited, device_type, browser, operating_system FROM visitor_logs " +
+                    "WHERE visit_time >= ? AND visit_time < ? AND id <= ?",
+                    rs -> {
+                        visits[0]++;
+                        LocalDateTime hour = rs.getTimestamp(1).toLocalDateTime().truncatedTo(ChronoUnit.HOURS);
+                        Dimension[] dimensions = Dimension.values();
+                        for (int i = 0; i < dimensions.length; i++) {
+                            counts.merge(List.of(hour, dimensions[i].name(), normalize(rs.getString(2 + i))), 1L, Long::sum);
+                        }
+                    }, Timestamp.valueOf(start), Timestamp.valueOf(end), watermark);
+
+                // Visits already moved to the archive are no longer in visitor_logs
+                visits[0] += visitorLogArchive.count(start, end);
+                visitorLogArchive.<List<Object>>aggregate(start, end, (visit, archived) -> {
+                    LocalDateTime hour = visit.visitTime().truncatedTo(ChronoUnit.HOURS);
+                    for (Dimension dimension : Dimension.values()) {
+                        archived.merge(List.of(hour, dimension.name(), normalize(archivedValue(visit, dimension))), 1L, Long::sum);
+                    }
+                }).forEach((key, archivedVisits) -> counts.merge(key, archivedVisits, Long::sum));
+                writeCounts(counts);
+                logger.info("Rebuilt visitor rollups for [{}, {}): {} visits", start, end, visits[0]);
+                return visits[0];
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Visits per dimension value in [from, to), most visited first. Either bound may be
+    // null; bounds are rounded down to the hour.
+    public List<Object[]> countBy(Dimension dimension, LocalDateTime from, LocalDateTime to) {
+        StringBuilder rollupSql = new StringBuilder(
+            "SELECT dimension_value, SUM(visits) FROM visitor_hourly_rollups WHERE dimension = ?");
+        StringBuilder tailSql = new StringBuilder(
+            "SELECT " + dimension.sqlColumn + ", COUNT(*) FROM visitor_logs WHERE id > ?");
+        List<Object> rangeParams = new ArrayList<>();
+        if (from != null) {
+            rollupSql.append(" AND bucket_hour >= ?");
+            tailSql.append(" AND visit_time >= ?");
+            rangeParams.add(Timestamp.valueOf(from.truncatedTo(ChronoUnit.HOURS)));
+        }
+        if (to != null) {
+            rollupSql.append(" AND bucket_hour < ?");
+            tailSql.append(" AND visit_time < ?");
+            rangeParams.add(Timestamp.valueOf(to.truncatedTo(ChronoUnit.HOURS)));
+        }
+        rollupSql.append(" GROUP BY dimension_value");
+        tailSql.append(" GROUP BY ").append(dimension.sqlColumn);
+
+        Map<String, Long> totals = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            List<Object> rollupParams = new ArrayList<>();
+            rollupParams.add(dimension.name());
+            rollupParams.addAll(rangeParams);
+            jdbcTemplate.query(rollupSql.toString(),
+                rs -> { totals.merge(rs.getString(1), rs.getLong(2), Long::sum); }, rollupParams.toArray());
+
+            // Visits not rolled up yet: at most one interval's worth, found by primary key
+            List<Object> tailParams = new ArrayList<>();
+            tailParams.add(readWatermark());
+            tailParams.addAll(rangeParams);
+            jdbcTemplate.query(tailSql.toString(),
+                rs -> { totals.merge(normalize(rs.getString(1)), rs.getLong(2), Long::sum); }, tailParams.toArray());
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Object[]> result = new ArrayList<>(totals.size());
+        totals.forEach((value, visits) -> result.add(new Object[] { value, visits }));
+        result.sort((a, b) -> Long.compare((Long) b[1], (Long) a[1]));
+        return result;
+    }
+
+    private void writeCounts(Map<List<Object>, Long> counts) {
+        List<Object[]> batch = new ArrayList<>(counts.size());
+        counts.forEach((key, visits) ->
+            batch.add(new Object[] { Timestamp.valueOf((LocalDateTime) key.get(0)), key.get(1), key.get(2), visits, visits }));
+        jdbcTemplate.batchUpdate(UPSERT_SQL, batch);
+    }
+
+    private long lockWatermark() {
+        List<Long> current = jdbcTemplate.queryForList(
+            "SELECT last_id FROM rollup_watermarks WHERE name = ? FOR UPDATE", Long.class, WATERMARK_NAME);
+        if (current.isEmpty()) {
+            jdbcTemplate.update("INSERT INTO rollup_watermarks (name, last_id) VALUES (?, 0)", WATERMARK_NAME);
+            return 0;
+        }
+        return current.get(0);
+    }
+
+    private long readWatermark() {
+        List<Long> current = jdbcTemplate.queryForList(
+            "SELECT last_id FROM rollup_watermarks WHERE name = ?", Long.class, WATERMARK_NAME);
+        return current.isEmpty() ? 0 : current.get(0);
+    }
+
+    private static String archivedValue(VisitorLogArchive.ArchivedVisit visit, Dimension dimension) {
+        switch (dimension) {
+            case PAGE: return visit.pageVisited();
+            case DEVICE: return visit.deviceType();
+            case BROWSER: return visit.browser();
+            default: return visit.operatingSystem();
+        }
+    }
+
+    // Highest visitor_logs id counted in the rollups
+    public long rolledUpThrough() {
+        return readWatermark();
+    }
+
+    private static String normalize(String value) {
+        String v = Objects.requireNonNullElse(value, "Unknown");
+        return v.length() > MAX_VALUE_LENGTH ? v.substring(0, MAX_VALUE_LENGTH) : v;
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("watermark", readWatermark());
+        metrics.put("runs", runs.get());
+        metrics.put("rowsRolledUp", rowsRolledUp.get());
+        metrics.put("lastRunMillis", lastRunMillis);
+        metrics.put("lastRunAt", lastRunAt);
+        return metrics;
+    }
+}
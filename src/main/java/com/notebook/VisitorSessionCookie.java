@@ -0,0 +1,175 @@
+package com.notebook;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Identifies visitor sessions with a signed cookie instead of an HttpSession, so anonymous
+// traffic keeps no server-side state. The cookie holds "id.lastSeen.signature" (HMAC-SHA256
+// over id and lastSeen); a session lasts until the visitor has been idle for the inactivity
+// window. lastSeen is only rewritten when older than refresh-seconds, so most requests
+// carry no Set-Cookie. Without a configured secret a random one is used, and sessions
+// simply restart with the application.
+@Component
+public class VisitorSessionCookie {
+
+    private static final Logger logger = LoggerFactory.getLogger(VisitorSessionCookie.class);
+
+    private static final String COOKIE_NAME = "nb_visit";
+    private static final int ID_BYTES = 9;        // 12 base64url characters
+    private static final int SIGNATURE_BYTES = 16;
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final SecureRandom random = new SecureRandom();
+
+    @Value("${visitor.session.secret:}")
+    private String secret;
+
+    @Value("${visitor.session.inactivity-minutes:30}")
+    private long inactivityMinutes;
+
+    @Value("${visitor.session.refresh-seconds:60}")
+    private long refreshSeconds;
+
+    private ThreadLocal<Mac> mac;
+
+    private final AtomicLong continued = new AtomicLong();
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicLong invalid = new AtomicLong();
+    private final AtomicLong refreshed = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        byte[] key;
+        if (secret == null || secret.isBlank()) {
+            key = new byte[32];
+            random.nextBytes(key);
+            logger.info("No visitor.session.secret configured; visitor sessions restart with the application");
+        } else {
+            key = secret.getBytes(StandardCharsets.UTF_8);
+        }
+        SecretKeySpec keySpec = new SecretKeySpec(key, "HmacSHA256");
+        mac = ThreadLocal.withInitial(() -> {
+            try {
+                Mac instance = Mac.getInstance("HmacSHA256");
+                instance.init(keySpec);
+                return instance;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("HmacSHA256 unavailable", e);
+            }
+        });
+    }
+
+    // Returns the visitor's session id, starting a new session when the cookie is missing,
+    // forged or idle for too long. response may be null, in which case nothing is written
+    public String resolve(HttpServletRequest request, HttpServletResponse response) {
+        long now = System.currentTimeMillis() / 1000;
+        String value = readCookie(request);
+        if (value != null) {
+            String[] parts = value.split("\\.");
+            long lastSeen = parts.length == 3 ? parseLong(parts[1]) : -1;
+            if (lastSeen < 0 || !verify(parts[0] + "." + parts[1], parts[2])) {
+                invalid.incrementAndGet();
+            } else if (now - lastSeen > inactivityMinutes * 60 || lastSeen > now + 60) {
+                expired.incrementAndGet();
+            } else {
+                continued.incrementAndGet();
+                if (now - lastSeen >= refreshSeconds) {
+                    refreshed.incrementAndGet();
+                    write(request, response, parts[0], now);
+                }
+                return parts[0];
+            }
+        }
+
+        byte[] idBytes = new byte[ID_BYTES];
+        random.nextBytes(idBytes);
+        String id = ENCODER.encodeToString(idBytes);
+        started.incrementAndGet();
+        write(request, response, id, now);
+        return id;
+    }
+
+    private static String readCookie(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return null;
+        }
+        for (Cookie cookie : cookies) {
+            if (COOKIE_NAME.equals(cookie.getName())) {
+                return cookie.getValue();
+            }
+        }
+        return null;
+    }
+
+    private void write(HttpServletRequest request, HttpServletResponse response, String id, long now) {
+        if (response == null || response.isCommitted()) {
+            return;
+        }
+        String payload = id + "." + now;
+        ResponseCookie cookie = ResponseCookie.from(COOKIE_NAME, payload + "." + sign(payload))
+            .path("/")
+            .maxAge(Duration.ofMinutes(inactivityMinutes))
+            .httpOnly(true)
+            .secure(request.isSecure())
+            .sameSite("Lax")
+            .build();
+        response.addHeader(HttpHeaders.SET_COOKIE, cookie.toString());
+    }
+
+    private String sign(String payload) {
+        byte[] digest = mac.get().doFinal(payload.getBytes(StandardCharsets.US_ASCII));
+        return ENCODER.encodeToString(Arrays.copyOf(digest, SIGNATURE_BYTES));
+    }
+
+    private boolean verify(String payload, String signature) {
+        byte[] expected = Arrays.copyOf(mac.get().doFinal(payload.getBytes(StandardCharsets.US_ASCII)), SIGNATURE_BYTES);
+        try {
+            return MessageDigest.isEqual(expected, DECODER.decode(signature));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static long parseLong(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("started", started.get());
+        metrics.put("continued", continued.get());
+        metrics.put("refreshed", refreshed.get());
+        metrics.put("expired", expired.get());
+        metrics.put("invalid", invalid.get());
+        return metrics;
+    }
+}
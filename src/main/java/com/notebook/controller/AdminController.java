@@ -1,10 +1,38 @@
 package com.notebook.controller;
 
-import com.notebook.ContactSubmission;
+import com.notebook.AnalyticsQueryExecutor;
+import com.notebook.ConnectionPoolMetrics;
 import com.notebook.ContactSubmissionRepository;
-import com.notebook.VisitorLog;
-import com.notebook.VisitorLoggingService;
+import com.notebook.DashboardSnapshotService;
+import com.notebook.HttpSessionMetrics;
+import com.notebook.ImageDerivativeService;
+import com.notebook.IpGeolocationService;
+import com.notebook.LiveCounterFeed;
+import com.notebook.StaticAssetPipeline;
+import com.notebook.SubmissionAdmissionControl;
+import com.notebook.SubmissionAttachmentService;
+import com.notebook.SubmissionCsvExporter;
+import com.notebook.SubmissionSearchIndex;
+import com.notebook.SubmissionStatsService;
+import com.notebook.SubmissionSummary;
+import com.notebook.UploadIngestionService;
+import com.notebook.UniqueVisitorSketches;
+import com.notebook.UserAgentClassifier;
+import com.notebook.VisitorLogArchiver;
+import com.notebook.VisitorLogPartitionManager;
+import com.notebook.VisitorLogWriter;
+import com.notebook.VisitorRollupService;
+import com.notebook.VisitorSessionCookie;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -13,10 +41,23 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.zip.GZIPOutputStream;
 import java.util.stream.Collectors;
 
 @Controller
@@ -26,7 +67,76 @@ public class AdminController {
     private ContactSubmissionRepository contactSubmissionRepository;
     
     @Autowired
-    private VisitorLoggingService visitorLoggingService;
+    private SubmissionAttachmentService submissionAttachmentService;
+    
+    @Autowired
+    private SubmissionStatsService submissionStatsService;
+    
+    @Autowired
+    private SubmissionSearchIndex submissionSearchIndex;
+    
+    @Autowired
+    private SubmissionCsvExporter submissionCsvExporter;
+    
+    @Autowired
+    private DashboardSnapshotService dashboardSnapshotService;
+    
+    @Autowired
+    private AnalyticsQueryExecutor analyticsQueryExecutor;
+    
+    @Autowired
+    private LiveCounterFeed liveCounterFeed;
+    
+    @Autowired
+    private HttpSessionMetrics httpSessionMetrics;
+    
+    @Autowired
+    private VisitorSessionCookie visitorSessionCookie;
+    
+    @Autowired
+    private StaticAssetPipeline staticAssetPipeline;
+    
+    @Autowired
+    private ImageDerivativeService imageDerivativeService;
+    
+    @Autowired
+    private PageCacheFilter pageCacheFilter;
+    
+    @Autowired
+    private VisitorLogWriter visitorLogWriter;
+    
+    @Autowired
+    private VisitorCapturePolicy visitorCapturePolicy;
+    
+    @Autowired
+    private VisitorRollupService visitorRollupService;
+    
+    @Autowired
+    private VisitorLogPartitionManager visitorLogPartitionManager;
+    
+    @Autowired
+    private VisitorLogArchiver visitorLogArchiver;
+    
+    @Autowired
+    private UniqueVisitorSketches uniqueVisitorSketches;
+    
+    @Autowired
+    private UserAgentClassifier userAgentClassifier;
+    
+    @Autowired
+    private IpGeolocationService ipGeolocationService;
+    
+    @Autowired
+    private ConnectionPoolMetrics connectionPoolMetrics;
+    
+    @Autowired
+    private UploadIngestionService uploadIngestionService;
+    
+    @Autowired
+    private SubmissionAdmissionControl submissionAdmissionControl;
+    
+    @Value("${admin.submissions.page-size:50}")
+    private int pageSize;
 
     @GetMapping("/login")
     public String adminLogin(@RequestParam(value = "error", required = false) String error, 
@@ -47,132 +157,224 @@ public class AdminController {
     }
 
     @GetMapping("")
-    public String adminHome(Model model) {
-        List<ContactSubmission> allSubmissions = contactSubmissionRepository.findAll();
-        
-        // Sort by most recent first
-        allSubmissions.sort((a, b) -> b.getSubmittedAt().compareTo(a.getSubmittedAt()));
-        
-        model.addAttribute("submissions", allSubmissions);
+    public String adminHome(@RequestParam(value = "beforeTime", required = false)
+                            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime beforeTime,
+                            @RequestParam(value = "beforeId", required = false) Long beforeId,
+                            Model model) {
+        // Keyset pagination: fetch one extra row to know whether an older page exists
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+        List<SubmissionSummary> page = beforeTime != null && beforeId != null
+                ? contactSubmissionRepository.findSummariesBefore(beforeTime, beforeId, limit)
+                : contactSubmissionRepository.findLatestSummaries(limit);
         
-        // Add contact submission statistics
-        long totalSubmissions = allSubmissions.size();
-        long submissionsWithFiles = allSubmissions.stream()
-                .filter(s -> s.getFileData() != null && s.getFileData().length > 0)
-                .count();
-        long todaySubmissions = allSubmissions.stream()
-                .filter(s -> s.getSubmittedAt().toLocalDate().equals(LocalDateTime.now().toLocalDate()))
-                .count();
-        long weekSubmissions = allSubmissions.stream()
-                .filter(s -> s.getSubmittedAt().isAfter(LocalDateTime.now().minusDays(7)))
-                .count();
-        
-        model.addAttribute("totalSubmissions", totalSubmissions);
-        model.addAttribute("submissionsWithFiles", submissionsWithFiles);
-        model.addAttribute("todaySubmissions", todaySubmissions);
-        model.addAttribute("weekSubmissions", weekSubmissions);
+        if (page.size() > pageSize) {
+            page = page.subList(0, pageSize);
+            SubmissionSummary last = page.get(page.size() - 1);
+            model.addAttribute("nextBeforeTime", last.getSubmittedAt());
+            model.addAttribute("nextBeforeId", last.getId());
+        }
+        model.addAttribute("submissions", page);
+        model.addAttribute("isFirstPage", beforeTime == null || beforeId == null);
         
-        // Add visitor analytics
-        model.addAttribute("totalVisits", visitorLoggingService.getTotalVisits());
-        model.addAttribute("todayVisits", visitorLoggingService.getTodayVisits());
-        model.addAttribute("weekVisits", visitorLoggingService.getWeekVisits());
-        model.addAttribute("monthVisits", visitorLoggingService.getMonthVisits());
-        model.addAttribute("uniqueVisitorsToday", visitorLoggingService.getUniqueVisitorsToday().size());
+        // Submission and visitor totals, from the shared dashboard snapshot
+        model.addAllAttributes(dashboardSnapshotService.getOverview());
         
         return "admin-panel";
     }
 
+    // from/to are inclusive dates bounding the breakdowns; both optional (all time)
     @GetMapping("/analytics")
-    public String visitorAnalytics(Model model) {
-        // Get visitor analytics data
-        model.addAttribute("totalVisits", visitorLoggingService.getTotalVisits());
-        model.addAttribute("todayVisits", visitorLoggingService.getTodayVisits());
-        model.addAttribute("weekVisits", visitorLoggingService.getWeekVisits());
-        model.addAttribute("monthVisits", visitorLoggingService.getMonthVisits());
-        model.addAttribute("uniqueVisitorsToday", visitorLoggingService.getUniqueVisitorsToday().size());
+    public String visitorAnalytics(@RequestParam(value = "from", required = false)
+                                   @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                   @RequestParam(value = "to", required = false)
+                                   @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                   Model model) {
+        model.addAttribute("rangeFrom", from);
+        model.addAttribute("rangeTo", to);
         
-        // Get detailed analytics
-        model.addAttribute("visitsByPage", visitorLoggingService.getVisitsByPage());
-        model.addAttribute("visitsByDeviceType", visitorLoggingService.getVisitsByDeviceType());
-        model.addAttribute("visitsByBrowser", visitorLoggingService.getVisitsByBrowser());
-        model.addAttribute("visitsByOperatingSystem", visitorLoggingService.getVisitsByOperatingSystem());
-        model.addAttribute("recentVisits", visitorLoggingService.getRecentVisits());
+        // Totals and breakdowns come from cached snapshots; show the age of the older one
+        Map<String, Object> overview = dashboardSnapshotService.getOverview();
+        Map<String, Object> analytics = dashboardSnapshotService.getAnalytics(from, to);
+        model.addAllAttributes(overview);
+        model.addAllAttributes(analytics);
+        if ((Long) overview.get("snapshotAgeSeconds") > (Long) analytics.get("snapshotAgeSeconds")) {
+            model.addAttribute("snapshotAgeSeconds", overview.get("snapshotAgeSeconds"));
+            model.addAttribute("snapshotComputedAt", overview.get("snapshotComputedAt"));
+        }
+        // Either snapshot may be missing queries that timed out; list both
+        List<Object> incomplete = new ArrayList<>();
+        for (Map<String, Object> snapshot : List.of(overview, analytics)) {
+            Object names = snapshot.get(AnalyticsQueryExecutor.INCOMPLETE_KEY);
+            if (names != null) {
+                incomplete.addAll((List<?>) names);
+            }
+        }
+        model.addAttribute(AnalyticsQueryExecutor.INCOMPLETE_KEY, incomplete.isEmpty() ? null : incomplete);
         
         return "visitor-analytics";
     }
+    
+    // Backfill/repair: recompute the hourly rollups for the inclusive date range from visitor_logs
+    // and the visitor archive
+    @PostMapping("/analytics/rollups/rebuild")
+    @ResponseBody
+    public Map<String, Object> rebuildVisitorRollups(@RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                     @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        long visits = visitorRollupService.rebuild(from.atStartOfDay(), to.plusDays(1).atStartOfDay());
+        dashboardSnapshotService.invalidateAnalytics();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("from", from);
+        result.put("to", to);
+        result.put("visits", visits);
+        return result;
+    }
+
+    // Picks up a replaced geolocation database now instead of at the next scheduled check
+    @PostMapping("/geo/reload")
+    @ResponseBody
+    public Map<String, Object> reloadGeolocation() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("reloaded", ipGeolocationService.reloadIfChanged());
+        result.putAll(ipGeolocationService.getMetrics());
+        return result;
+    }
+
+    @PostMapping("/page-cache/invalidate")
+    @ResponseBody
+    public Map<String, Object> invalidatePageCache() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("dropped", pageCacheFilter.invalidate());
+        result.putAll(pageCacheFilter.getMetrics());
+        return result;
+    }
+
+    @GetMapping(value = "/submissions/{id}/message", produces = MediaType.TEXT_PLAIN_VALUE)
+    @ResponseBody
+    public ResponseEntity<String> getSubmissionMessage(@PathVariable Long id) {
+        return contactSubmissionRepository.findMessageById(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
 
     @PostMapping("/delete/{id}")
     public String deleteSubmission(@PathVariable Long id) {
-        contactSubmissionRepository.deleteById(id);
+        // The attachment file, if no longer referenced, goes with the next orphan sweep
+        submissionStatsService.delete(id);
         return "redirect:/admin";
     }
     
+    // Server-Sent Events stream of counter deltas for the dashboard; since is the page's
+    // liveSequence, so the first event covers changes after its totals were computed
+    @GetMapping(value = "/live", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> liveCounters(@RequestParam(value = "since", required = false) String since) {
+        SseEmitter emitter = liveCounterFeed.subscribe(since);
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok().header(HttpHeaders.CACHE_CONTROL, "no-store").body(emitter);
+    }
+    
     @GetMapping("/stats")
     @ResponseBody
     public Map<String, Object> getStats() {
-        List<ContactSubmission> allSubmissions = contactSubmissionRepository.findAll();
-        
-        Map<String, Object> stats = Map.of(
-            "totalSubmissions", allSubmissions.size(),
-            "submissionsWithFiles", allSubmissions.stream()
-                .filter(s -> s.getFileData() != null && s.getFileData().length > 0)
-                .count(),
-            "todaySubmissions", allSubmissions.stream()
-                .filter(s -> s.getSubmittedAt().toLocalDate().equals(LocalDateTime.now().toLocalDate()))
-                .count(),
-            "weekSubmissions", allSubmissions.stream()
-                .filter(s -> s.getSubmittedAt().isAfter(LocalDateTime.now().minusDays(7)))
-                .count(),
-            "monthSubmissions", allSubmissions.stream()
-                .filter(s -> s.getSubmittedAt().isAfter(LocalDateTime.now().minusDays(30)))
-                .count(),
-            "totalVisits", visitorLoggingService.getTotalVisits(),
-            "todayVisits", visitorLoggingService.getTodayVisits(),
-            "weekVisits", visitorLoggingService.getWeekVisits(),
-            "monthVisits", visitorLoggingService.getMonthVisits(),
-            "uniqueVisitorsToday", visitorLoggingService.getUniqueVisitorsToday().size()
-        );
-        
-        return stats;
+        return dashboardSnapshotService.getOverview();
+    }
+    
+    @GetMapping("/metrics")
+    @ResponseBody
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("connectionPool", connectionPoolMetrics.getMetrics());
+        metrics.put("visitorLogWriter", visitorLogWriter.getMetrics());
+        metrics.put("visitorCapture", visitorCapturePolicy.getMetrics());
+        metrics.put("userAgentClassifier", userAgentClassifier.getMetrics());
+        metrics.put("geolocation", ipGeolocationService.getMetrics());
+        metrics.put("visitorRollup", visitorRollupService.getMetrics());
+        metrics.put("visitorLogPartitions", visitorLogPartitionManager.getMetrics());
+        metrics.put("visitorArchive", visitorLogArchiver.getMetrics());
+        metrics.put("uniqueVisitorSketches", uniqueVisitorSketches.getMetrics());
+        metrics.put("uploadIngestion", uploadIngestionService.getMetrics());
+        metrics.put("attachments", submissionAttachmentService.getMetrics());
+        metrics.put("contactAdmission", submissionAdmissionControl.getMetrics());
+        metrics.put("submissionCounters", submissionStatsService.getMetrics());
+        metrics.put("searchIndex", submissionSearchIndex.getMetrics());
+        metrics.put("dashboardSnapshots", dashboardSnapshotService.getMetrics());
+        metrics.put("analyticsQueries", analyticsQueryExecutor.getMetrics());
+        metrics.put("liveFeed", liveCounterFeed.getMetrics());
+        metrics.put("httpSessions", httpSessionMetrics.getMetrics());
+        metrics.put("visitorSessions", visitorSessionCookie.getMetrics());
+        metrics.put("staticAssets", staticAssetPipeline.getMetrics());
+        metrics.put("imageDerivatives", imageDerivativeService.getMetrics());
+        metrics.put("pageCache", pageCacheFilter.getMetrics());
+        metrics.put("csvExport", submissionCsvExporter.getMetrics());
+        return metrics;
     }
     
     @GetMapping("/search")
-    public String searchSubmissions(@RequestParam String query, Model model) {
-        List<ContactSubmission> allSubmissions = contactSubmissionRepository.findAll();
+    public String searchSubmissions(@RequestParam String query,
+                                    @RequestParam(value = "page", defaultValue = "0") int page,
+                                    Model model) {
+        page = Math.max(page, 0);
+        SubmissionSearchIndex.SearchResult result = submissionSearchIndex.search(query, page, pageSize);
         
-        List<ContactSubmission> filteredSubmissions = allSubmissions.stream()
-            .filter(s -> s.getName().toLowerCase().contains(query.toLowerCase()) ||
-                        s.getEmail().toLowerCase().contains(query.toLowerCase()) ||
-                        s.getSubject().toLowerCase().contains(query.toLowerCase()) ||
-                        s.getMessage().toLowerCase().contains(query.toLowerCase()))
+        // Load the page's rows in one query and keep the ranking order; rows deleted
+        // since they were indexed simply drop out
+        Map<Long, SubmissionSummary> byId = contactSubmissionRepository.findSummariesByIds(result.getIds()).stream()
+            .collect(Collectors.toMap(SubmissionSummary::getId, Function.identity()));
+        List<SubmissionSummary> ranked = result.getIds().stream()
+            .map(byId::get)
+            .filter(Objects::nonNull)
             .collect(Collectors.toList());
         
-        model.addAttribute("submissions", filteredSubmissions);
+        model.addAttribute("submissions", ranked);
         model.addAttribute("searchQuery", query);
+        model.addAttribute("searchHits", result.getTotalHits());
+        model.addAttribute("searchPage", page);
+        model.addAttribute("hasNextSearchPage", (long) (page + 1) * pageSize < result.getTotalHits());
         return "admin-panel";
     }
     
-    @GetMapping("/export")
+    // Typeahead: indexed terms completing the last word of the query
+    @GetMapping("/search/suggest")
     @ResponseBody
-    public String exportSubmissions() {
-        List<ContactSubmission> submissions = contactSubmissionRepository.findAll();
+    public List<String> suggestSearchTerms(@RequestParam("q") String prefix) {
+        return submissionSearchIndex.suggest(prefix, 10);
+    }
+    
+    // Streams the CSV as it is read; from/to are inclusive dates, columns a comma-separated
+    // subset of the header names, and gzip=true downloads a .csv.gz
+    @GetMapping("/export")
+    public void exportSubmissions(@RequestParam(value = "from", required = false)
+                                  @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                  @RequestParam(value = "to", required = false)
+                                  @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                  @RequestParam(value = "columns", required = false) List<String> columns,
+                                  @RequestParam(value = "gzip", defaultValue = "false") boolean gzip,
+                                  HttpServletResponse response) throws IOException {
+        List<SubmissionCsvExporter.Column> exportColumns;
+        try {
+            exportColumns = columns == null || columns.isEmpty()
+                ? SubmissionCsvExporter.DEFAULT_COLUMNS
+                : columns.stream().map(SubmissionCsvExporter.Column::parse).collect(Collectors.toList());
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
         
-        StringBuilder csv = new StringBuilder();
-        csv.append("ID,Name,Email,Phone,Subject,Message,FileName,SubmittedAt\n");
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setContentType(gzip ? "application/gzip" : "text/csv;charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                           "attachment; filename=\"submissions.csv" + (gzip ? ".gz" : "") + "\"");
         
-        for (ContactSubmission submission : submissions) {
-            csv.append(String.format("%d,\"%s\",\"%s\",\"%s\",\"%s\",\"%s\",\"%s\",\"%s\"\n",
-                submission.getId(),
-                submission.getName().replace("\"", "\"\""),
-                submission.getEmail(),
-                submission.getPhone(),
-                submission.getSubject().replace("\"", "\"\""),
-                submission.getMessage().replace("\"", "\"\""),
-                submission.getFileName() != null ? submission.getFileName().replace("\"", "\"\"") : "",
-                submission.getSubmittedAt()
-            ));
+        OutputStream body = response.getOutputStream();
+        if (gzip) {
+            // syncFlush so each flushed batch reaches the client instead of waiting in the deflater
+            body = new GZIPOutputStream(body, 8192, true);
+        }
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(body, StandardCharsets.UTF_8))) {
+            submissionCsvExporter.export(out, exportColumns,
+                                         from != null ? from.atStartOfDay() : null,
+                                         to != null ? to.plusDays(1).atStartOfDay() : null);
         }
-        
-        return csv.toString();
     }
-} 
\ No newline at end of file
+}
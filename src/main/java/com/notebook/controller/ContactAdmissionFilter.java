@@ -0,0 +1,80 @@
+package com.notebook.controller;
+
+import com.notebook.ClientAddressResolver;
+import com.notebook.SubmissionAdmissionControl;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+// Puts SubmissionAdmissionControl in front of POST /contact/submit. It runs ahead of the
+// security chain and the DispatcherServlet, which is where the multipart body would be
+// parsed, so a rejection costs a header lookup rather than a 10MB upload. Rejected
+// submissions are redirected back to the form with an error, like the controller's own
+// validation failures, and carry Retry-After.
+@Component
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER - 10)
+public class ContactAdmissionFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContactAdmissionFilter.class);
+
+    @Autowired
+    private SubmissionAdmissionControl submissionAdmissionControl;
+
+    @Autowired
+    private ClientAddressResolver clientAddressResolver;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod())
+            || !"/contact/submit".equals(request.getRequestURI().substring(request.getContextPath().length()));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String client = clientAddressResolver.resolve(request);
+        SubmissionAdmissionControl.Decision decision = submissionAdmissionControl.admit(client, request.getContentLengthLong());
+        if (decision == SubmissionAdmissionControl.Decision.ADMITTED) {
+            try {
+                chain.doFilter(request, response);
+            } finally {
+                submissionAdmissionControl.release();
+            }
+            return;
+        }
+
+        logger.warn("Contact form submission from {} rejected: {}", client, decision);
+        String error;
+        long retryAfter;
+        switch (decision) {
+            case TOO_LARGE:
+                error = "File+size+exceeds+the+maximum+allowed+limit+of+10MB.";
+                retryAfter = 0;
+                break;
+            case RATE_LIMITED:
+                error = "Too+many+submissions.+Please+wait+a+few+minutes+before+trying+again.";
+                retryAfter = submissionAdmissionControl.retryAfterSeconds(client);
+                break;
+            default:
+                error = "We+are+receiving+a+lot+of+messages+right+now.+Please+try+again+shortly.";
+                retryAfter = 5;
+                break;
+        }
+        if (retryAfter > 0) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter));
+        }
+        response.setStatus(HttpServletResponse.SC_SEE_OTHER);
+        response.setHeader(HttpHeaders.LOCATION, request.getContextPath() + "/?error=" + error + "#contact");
+    }
+}
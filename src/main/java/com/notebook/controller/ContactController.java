@@ -2,6 +2,9 @@ package com.notebook.controller;
 
 import com.notebook.ContactSubmission;
 import com.notebook.ContactSubmissionRepository;
+import com.notebook.SubmissionAttachmentService;
+import com.notebook.SubmissionStatsService;
+import com.notebook.UploadIngestionService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -11,21 +14,47 @@ import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.ui.Model;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 @Controller
 public class ContactController {
     
     private static final Logger logger = LoggerFactory.getLogger(ContactController.class);
     
+    private static final String SENDFILE_SUPPORT_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+    
+    private static final CacheControl ATTACHMENT_CACHE_CONTROL = CacheControl.maxAge(1, TimeUnit.HOURS).cachePrivate();
+    
     @Autowired
     private ContactSubmissionRepository contactSubmissionRepository;
+    
+    @Autowired
+    private SubmissionAttachmentService submissionAttachmentService;
+    
+    @Autowired
+    private SubmissionStatsService submissionStatsService;
+    
+    @Autowired
+    private UploadIngestionService uploadIngestionService;
 
     // Test endpoint to verify database functionality
     @GetMapping("/test-db")
@@ -43,7 +72,7 @@ public class ContactController {
             testSubmission.setMessage("This is a test message to verify database functionality");
             
             logger.info("Saving test submission to database...");
-            ContactSubmission saved = contactSubmissionRepository.save(testSubmission);
+            ContactSubmission saved = submissionStatsService.save(testSubmission);
             logger.info("Test submission saved with ID: {}", saved.getId());
             
             // Count total submissions
@@ -59,42 +88,111 @@ public class ContactController {
         }
     }
 
-    // File download endpoint
+    // File download endpoint; streams the attachment and honours Range and If-None-Match
     @GetMapping("/download-file/{submissionId}")
-    public ResponseEntity<byte[]> downloadFile(@PathVariable Long submissionId) {
+    public ResponseEntity<Resource> downloadFile(@PathVariable Long submissionId,
+                                                 HttpServletRequest request,
+                                                 HttpServletResponse response) {
         try {
-            Optional<ContactSubmission> submissionOpt = contactSubmissionRepository.findById(submissionId);
+            Optional<SubmissionAttachmentService.AttachmentInfo> attachmentOpt =
+                    submissionAttachmentService.findAttachment(submissionId);
             
-            if (submissionOpt.isEmpty()) {
-                logger.warn("File download requested for non-existent submission: {}", submissionId);
+            if (attachmentOpt.isEmpty()) {
+                logger.warn("File download requested for submission without file data: {}", submissionId);
                 return ResponseEntity.notFound().build();
             }
             
-            ContactSubmission submission = submissionOpt.get();
-            
-            if (submission.getFileData() == null || submission.getFileData().length == 0) {
-                logger.warn("File download requested for submission without file data: {}", submissionId);
+            SubmissionAttachmentService.AttachmentInfo attachment = attachmentOpt.get();
+            Resource content = submissionAttachmentService.openAttachment(attachment);
+            if (!content.exists()) {
+                logger.error("Stored attachment {} missing for submission {}", attachment.getFileKey(), submissionId);
                 return ResponseEntity.notFound().build();
             }
             
-            // Set up headers for file download
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.parseMediaType(submission.getFileType()));
-            headers.setContentDispositionFormData("attachment", submission.getFileName());
-            headers.setContentLength(submission.getFileData().length);
+            logger.info("File download for submission {}: {} ({} bytes)", 
+                       submissionId, attachment.getFileName(), attachment.getSize());
             
-            logger.info("File download successful for submission {}: {} ({} bytes)", 
-                       submissionId, submission.getFileName(), submission.getFileData().length);
+            // Zero-copy: let Tomcat hand the file to the socket with sendfile
+            if (sendWithSendfile(request, response, attachment, content)) {
+                return null;
+            }
             
+            // Content-Length, Accept-Ranges, 206 and 304 responses are handled by Spring
+            // based on the Resource body and the ETag below
             return ResponseEntity.ok()
-                    .headers(headers)
-                    .body(submission.getFileData());
+                    .contentType(MediaType.parseMediaType(attachment.getFileType()))
+                    .header(HttpHeaders.CONTENT_DISPOSITION, contentDisposition(attachment))
+                    .eTag(attachment.getEtag())
+                    .cacheControl(ATTACHMENT_CACHE_CONTROL)
+                    .body(content);
                     
         } catch (Exception e) {
             logger.error("File download failed for submission {}: {}", submissionId, e.getMessage(), e);
             return ResponseEntity.internalServerError().build();
         }
     }
+    
+    // Handles the download through Tomcat's sendfile support when the attachment is a
+    // local file and at most one range is requested. Returns false to fall back to the
+    // regular streaming response (other containers, multi-range or invalid ranges).
+    private boolean sendWithSendfile(HttpServletRequest request, HttpServletResponse response,
+                                     SubmissionAttachmentService.AttachmentInfo attachment,
+                                     Resource content) throws IOException {
+        if (!Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTR)) || !content.isFile()) {
+            return false;
+        }
+        
+        ServletWebRequest webRequest = new ServletWebRequest(request, response);
+        if (webRequest.checkNotModified(attachment.getEtag())) {
+            return true;
+        }
+        
+        long size = attachment.getSize();
+        long start = 0;
+        long end = size - 1;
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        boolean partial = rangeHeader != null && (ifRange == null || ifRange.equals(attachment.getEtag()));
+        if (partial) {
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(rangeHeader);
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+            if (ranges.size() != 1) {
+                return false;
+            }
+            try {
+                start = ranges.get(0).getRangeStart(size);
+                end = ranges.get(0).getRangeEnd(size);
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+            if (start >= size || start > end) {
+                return false;
+            }
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+        }
+        
+        response.setContentType(attachment.getFileType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, contentDisposition(attachment));
+        response.setHeader(HttpHeaders.ETAG, attachment.getEtag());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, ATTACHMENT_CACHE_CONTROL.getHeaderValue());
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setContentLengthLong(end - start + 1);
+        
+        request.setAttribute(SENDFILE_FILENAME_ATTR, content.getFile().getAbsolutePath());
+        request.setAttribute(SENDFILE_START_ATTR, start);
+        // Tomcat's end offset is exclusive
+        request.setAttribute(SENDFILE_END_ATTR, end + 1);
+        return true;
+    }
+    
+    private static String contentDisposition(SubmissionAttachmentService.AttachmentInfo attachment) {
+        return ContentDisposition.attachment().filename(attachment.getFileName()).build().toString();
+    }
 
     // List all submissions with file info
     @GetMapping("/submissions")
@@ -113,9 +211,9 @@ public class ContactController {
                 result.append("<td>").append(submission.getEmail()).append("</td>");
                 result.append("<td>").append(submission.getSubject()).append("</td>");
                 
-                if (submission.getFileData() != null && submission.getFileData().length > 0) {
+                if (submission.getFileKey() != null) {
                     result.append("<td>").append(submission.getFileName()).append("</td>");
-                    result.append("<td>").append(submission.getFileData().length).append(" bytes</td>");
+                    result.append("<td>").append(submission.getFileSize()).append(" bytes</td>");
                     result.append("<td><a href='/download-file/").append(submission.getId()).append("'>Download</a></td>");
                 } else {
                     result.append("<td>No file</td>");
@@ -174,6 +272,7 @@ public class ContactController {
             logger.info("Step 1: Basic validation passed");
             
             // Step 2: File validation (if present)
+            UploadIngestionService.Result ingested = null;
         if (file != null && !file.isEmpty()) {
                 logger.info("Step 2: Processing file upload...");
                 logger.info("File details - Name: {}, Size: {} bytes, Content-Type: {}", 
@@ -200,18 +299,24 @@ public class ContactController {
                            .replace("size", String.valueOf(fileSize / (1024 * 1024)));
                 }
                 
-                // Check if file is actually readable
-                try {
-                    byte[] fileBytes = file.getBytes();
-                    if (fileBytes.length == 0) {
-                        logger.warn("File upload failed: Empty file {}", file.getOriginalFilename());
-                        return "redirect:/?error=The+uploaded+file+appears+to+be+empty.+Please+try+again.#contact";
-                    }
-                    logger.info("File content read successfully: {} bytes", fileBytes.length);
+                // Read the upload once: check it isn't empty, verify its magic bytes against
+                // the claimed type, and stream it into the attachment store
+                try (InputStream in = file.getInputStream()) {
+                    ingested = uploadIngestionService.ingest(in, fileType);
                 } catch (IOException e) {
                     logger.error("Failed to read file content: {}", e.getMessage());
                     return "redirect:/?error=Unable+to+read+file+content.+Please+try+again.#contact";
                 }
+                if (ingested.getRejection() == UploadIngestionService.Rejection.EMPTY) {
+                    logger.warn("File upload failed: Empty file {}", file.getOriginalFilename());
+                    return "redirect:/?error=The+uploaded+file+appears+to+be+empty.+Please+try+again.#contact";
+                }
+                if (ingested.getRejection() == UploadIngestionService.Rejection.TYPE_MISMATCH) {
+                    logger.warn("File upload failed: {} claims {} but content is {}",
+                               file.getOriginalFilename(), fileType, ingested.getDetectedType());
+                    return "redirect:/?error=The+file+content+does+not+match+an+image+or+PDF.+Please+try+again.#contact";
+                }
+                logger.info("File content stored successfully: {} bytes", ingested.getSize());
                 logger.info("Step 2: File validation passed");
             } else {
                 logger.info("Step 2: No file uploaded, skipping file validation");
@@ -227,26 +332,15 @@ public class ContactController {
             submission.setMessage(message.trim());
             logger.info("Step 3: Submission object created successfully");
             
-            // Step 4: Handle file data (if present)
-            if (file != null && !file.isEmpty()) {
+            // Step 4: Attach the stored file (if present); the row keeps only the key
+            if (ingested != null) {
                 logger.info("Step 4: Processing file data...");
-                try {
                 submission.setFileName(file.getOriginalFilename());
-                submission.setFileType(file.getContentType());
-                    
-                    // Read file bytes with error handling
-                    byte[] fileBytes = file.getBytes();
-                    submission.setFileData(fileBytes);
-                    
-                    logger.info("File successfully attached: {} ({} bytes)", file.getOriginalFilename(), fileBytes.length);
-                    logger.info("Step 4: File data processed successfully");
-                } catch (IOException e) {
-                    logger.error("Failed to process file data: {}", e.getMessage(), e);
-                    return "redirect:/?error=Failed+to+process+file+data.+Please+try+again.#contact";
-                } catch (Exception e) {
-                    logger.error("Unexpected error processing file: {}", e.getMessage(), e);
-                    return "redirect:/?error=Unexpected+error+processing+file.+Please+try+again.#contact";
-                }
+                submission.setFileType(ingested.getDetectedType());
+                submission.setFileKey(ingested.getKey());
+                submission.setFileSize(ingested.getSize());
+                logger.info("File successfully attached: {} ({} bytes)", file.getOriginalFilename(), ingested.getSize());
+                logger.info("Step 4: File data processed successfully");
             } else {
                 logger.info("Step 4: No file data to process");
             }
@@ -254,7 +348,7 @@ public class ContactController {
             // Step 5: Save to database
             logger.info("Step 5: Saving submission to database...");
             try {
-                contactSubmissionRepository.save(submission);
+                submissionStatsService.save(submission);
                 logger.info("Contact form submission saved successfully for: {}", email);
                 logger.info("=== Contact form submission completed successfully ===");
                 return "redirect:/?success#contact";
@@ -262,13 +356,15 @@ public class ContactController {
                 logger.error("Database save failed: {}", e.getMessage(), e);
                 
                 // Try to save without file data if database save fails
-                if (file != null && !file.isEmpty()) {
+                if (ingested != null) {
                     logger.info("Attempting to save without file data...");
                     try {
                         submission.setFileName(null);
                         submission.setFileType(null);
-                        submission.setFileData(null);
-            contactSubmissionRepository.save(submission);
+                        submission.setFileKey(null);
+                        submission.setFileSize(null);
+            submissionStatsService.save(submission);
+                        // The stored file is left to the orphan sweep
                         logger.info("Submission saved successfully without file data");
                         return "redirect:/?error=Message+sent+but+file+upload+failed.+We+received+your+message+without+the+attachment.#contact";
                     } catch (Exception e2) {
@@ -0,0 +1,72 @@
+package com.notebook.controller;
+
+import com.notebook.ImageDerivativeService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.context.request.WebRequest;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@Controller
+public class ImageController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageController.class);
+
+    private static final CacheControl VARIANT_CACHE_CONTROL =
+        CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable();
+
+    @Autowired
+    private ImageDerivativeService imageDerivativeService;
+
+    // Resized variant of a static image, e.g. /img/<md5>/640/jpeg/css/images/homebg.png.
+    // A hash for older content redirects to the current variant.
+    @GetMapping("/img/{hash}/{width}/{format}/{*path}")
+    public ResponseEntity<Resource> variant(@PathVariable String hash, @PathVariable int width,
+                                            @PathVariable String format, @PathVariable String path,
+                                            WebRequest request) {
+        String imagePath = path.startsWith("/") ? path.substring(1) : path;
+        ImageDerivativeService.Source source = imageDerivativeService.source(imagePath);
+        if (source == null || !imageDerivativeService.supports(width, format)) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!source.getHash().equals(hash)) {
+            return ResponseEntity.status(HttpStatus.FOUND)
+                    .header(HttpHeaders.LOCATION, imageDerivativeService.url(imagePath, width, format))
+                    .build();
+        }
+        
+        // Answered before the variant is opened, since a 304 never reads (or closes) the body
+        String name = imageDerivativeService.variantName(source, width, format);
+        if (request.checkNotModified(name)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .cacheControl(VARIANT_CACHE_CONTROL)
+                    .eTag(name)
+                    .build();
+        }
+        
+        try {
+            ImageDerivativeService.Variant variant = imageDerivativeService.variant(source, width, format);
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(imageDerivativeService.contentType(format)))
+                    .contentLength(variant.getSize())
+                    .cacheControl(VARIANT_CACHE_CONTROL)
+                    .eTag(variant.getName())
+                    .body(new InputStreamResource(variant.getInputStream()));
+        } catch (IOException e) {
+            logger.error("Generating {}w {} of {} failed: {}", width, format, imagePath, e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+}
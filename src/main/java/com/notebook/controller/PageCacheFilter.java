@@ -0,0 +1,203 @@
+package com.notebook.controller;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Micro-cache for rendered public pages. Only the paths listed in page.cache.paths are
+// cached, keyed by path plus the configured vary headers, for ttl-ms; every response
+// carries an ETag and "Cache-Control: no-cache", so browsers revalidate and get a 304
+// when nothing changed. A hit never reaches the DispatcherServlet, so the filter hands
+// it to VisitorLoggingInterceptor.capture itself and the visit is still counted.
+// Requests with a bypass parameter (the contact form's ?success / ?error redirects) are
+// rendered normally and not stored. Only complete 200 responses are cached, without
+// their cookies.
+@Component
+public class PageCacheFilter extends OncePerRequestFilter {
+
+    private static final class Entry {
+        final byte[] body;
+        final String contentType;
+        final String etag;
+        final long storedAtMillis;
+
+        Entry(byte[] body, String contentType, String etag) {
+            this.body = body;
+            this.contentType = contentType;
+            this.etag = etag;
+            this.storedAtMillis = System.currentTimeMillis();
+        }
+    }
+
+    @Autowired
+    private VisitorLoggingInterceptor visitorLoggingInterceptor;
+
+    @Value("${page.cache.paths:}")
+    private Set<String> paths;
+
+    @Value("${page.cache.ttl-ms:5000}")
+    private long ttlMillis;
+
+    @Value("${page.cache.vary-headers:}")
+    private List<String> varyHeaders;
+
+    @Value("${page.cache.bypass-params:success,error}")
+    private List<String> bypassParams;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    // Bumped by invalidate(), so a render that started before it is not stored
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong notModified = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong bypassed = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        paths.removeIf(String::isBlank);
+        varyHeaders.removeIf(String::isBlank);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String method = request.getMethod();
+        if (!"GET".equals(method) && !"HEAD".equals(method)) {
+            return true;
+        }
+        return !paths.contains(request.getRequestURI().substring(request.getContextPath().length()));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        for (String param : bypassParams) {
+            if (request.getParameter(param) != null) {
+                bypassed.incrementAndGet();
+                chain.doFilter(request, response);
+                return;
+            }
+        }
+
+        String key = key(request);
+        Entry entry = entries.get(key);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        if (entry != null && System.currentTimeMillis() - entry.storedAtMillis < ttlMillis) {
+            visitorLoggingInterceptor.capture(request, response);
+            if (matches(request, entry.etag)) {
+                notModified.incrementAndGet();
+                response.setHeader(HttpHeaders.ETAG, entry.etag);
+                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return;
+            }
+            hits.incrementAndGet();
+            write(request, response, entry);
+            return;
+        }
+
+        misses.incrementAndGet();
+        long startGeneration = generation.get();
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        chain.doFilter(request, wrapper);
+        byte[] body = wrapper.getContentAsByteArray();
+        if (wrapper.getStatus() != HttpServletResponse.SC_OK || body.length == 0) {
+            wrapper.copyBodyToResponse();
+            return;
+        }
+
+        Entry rendered = new Entry(body, wrapper.getContentType(), etag(body));
+        if (startGeneration == generation.get()) {
+            entries.put(key, rendered);
+        }
+        wrapper.setHeader(HttpHeaders.ETAG, rendered.etag);
+        if (matches(request, rendered.etag)) {
+            notModified.incrementAndGet();
+            wrapper.resetBuffer();
+            wrapper.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        wrapper.copyBodyToResponse();
+    }
+
+    private String key(HttpServletRequest request) {
+        StringBuilder key = new StringBuilder(request.getRequestURI());
+        for (String header : varyHeaders) {
+            String value = request.getHeader(header);
+            key.append('\n').append(value != null ? value : "");
+        }
+        return key.toString();
+    }
+
+    private static String etag(byte[] body) {
+        return "\"" + DigestUtils.md5DigestAsHex(body) + "\"";
+    }
+
+    private static boolean matches(HttpServletRequest request, String etag) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag) || tag.equals("*")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void write(HttpServletRequest request, HttpServletResponse response, Entry entry) throws IOException {
+        response.setHeader(HttpHeaders.ETAG, entry.etag);
+        if (entry.contentType != null) {
+            response.setContentType(entry.contentType);
+        }
+        response.setContentLength(entry.body.length);
+        if (!"HEAD".equals(request.getMethod())) {
+            response.getOutputStream().write(entry.body);
+        }
+    }
+
+    // Drops every cached page, e.g. after changing a template on a running server
+    public int invalidate() {
+        generation.incrementAndGet();
+        invalidations.incrementAndGet();
+        int dropped = entries.size();
+        entries.clear();
+        return dropped;
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("paths", new ArrayList<>(paths));
+        metrics.put("ttlMillis", ttlMillis);
+        metrics.put("entries", entries.size());
+        metrics.put("hits", hits.get());
+        metrics.put("notModified", notModified.get());
+        metrics.put("misses", misses.get());
+        metrics.put("bypassed", bypassed.get());
+        metrics.put("invalidations", invalidations.get());
+        return metrics;
+    }
+}
@@ -1,7 +1,5 @@
 package com.notebook.controller;
 
-import com.notebook.VisitorLoggingService;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.ResponseBody;
@@ -9,24 +7,20 @@ import org.springframework.web.bind.annotation.ResponseBody;
 @Controller
 public class PageController {
 
-    @Autowired
-    private VisitorLoggingService visitorLoggingService;
+    // Page views are captured by VisitorLoggingInterceptor, not in the handlers
 
     @GetMapping("/")
     public String home() {
-        visitorLoggingService.logVisitor("Home");
         return "index";
     }
 
     @GetMapping("/about")
     public String about() {
-        visitorLoggingService.logVisitor("About");
         return "about";
     }
 
     @GetMapping("/gallery")
     public String gallery() {
-        visitorLoggingService.logVisitor("Gallery");
         return "gallery";
     }
 
@@ -0,0 +1,33 @@
+package com.notebook.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+// Cache policy for the static resource handlers. Content-hashed URLs ("styles-<md5>.css",
+// as written into the templates by the resource chain) never change, so browsers may keep
+// them for a year without revalidating; the resolver rejects a hash that does not match
+// the content. Plain URLs must be revalidated, since their content changes on deploy.
+@Component
+public class StaticAssetCacheInterceptor implements HandlerInterceptor {
+
+    private static final Pattern VERSIONED = Pattern.compile("-[0-9a-f]{32}\\.[^/]+$");
+
+    private static final String IMMUTABLE =
+        CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable().getHeaderValue();
+
+    private static final String REVALIDATE = CacheControl.noCache().getHeaderValue();
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        boolean versioned = VERSIONED.matcher(request.getRequestURI()).find();
+        response.setHeader(HttpHeaders.CACHE_CONTROL, versioned ? IMMUTABLE : REVALIDATE);
+        return true;
+    }
+}
@@ -0,0 +1,110 @@
+package com.notebook.controller;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Decides which requests become visitor log rows. Rules are "pattern=action" pairs,
+// evaluated in order (first match wins), where action is "exclude" or a sampling rate
+// between 0 and 1. Paths that match no rule fall back to default-rate.
+@Component
+public class VisitorCapturePolicy {
+
+    public enum Decision { CAPTURE, EXCLUDED, SAMPLED_OUT }
+
+    private static final class Rule {
+        final String pattern;
+        final double rate;  // 0 means excluded
+        final AtomicLong matched = new AtomicLong();
+
+        Rule(String pattern, double rate) {
+            this.pattern = pattern;
+            this.rate = rate;
+        }
+    }
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    @Value("${visitor.capture.rules:/css/**=exclude,/images/**=exclude,/js/**=exclude,/favicon.ico=exclude}")
+    private String rulesSpec;
+
+    @Value("${visitor.capture.default-rate:0}")
+    private double defaultRate;
+
+    @Value("${visitor.capture.page-names:/=Home,/about=About,/gallery=Gallery}")
+    private String pageNamesSpec;
+
+    private final List<Rule> rules = new ArrayList<>();
+    private final Map<String, String> pageNames = new LinkedHashMap<>();
+
+    private final AtomicLong captured = new AtomicLong();
+    private final AtomicLong excluded = new AtomicLong();
+    private final AtomicLong sampledOut = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        for (String entry : rulesSpec.split(",")) {
+            String[] parts = entry.trim().split("=", 2);
+            if (parts.length != 2 || parts[0].isEmpty()) {
+                continue;
+            }
+            String action = parts[1].trim();
+            double rate = "exclude".equalsIgnoreCase(action) ? 0.0 : Double.parseDouble(action);
+            rules.add(new Rule(parts[0].trim(), rate));
+        }
+        for (String entry : pageNamesSpec.split(",")) {
+            String[] parts = entry.trim().split("=", 2);
+            if (parts.length == 2) {
+                pageNames.put(parts[0].trim(), parts[1].trim());
+            }
+        }
+    }
+
+    public Decision evaluate(String path) {
+        double rate = defaultRate;
+        for (Rule rule : rules) {
+            if (pathMatcher.match(rule.pattern, path)) {
+                rule.matched.incrementAndGet();
+                rate = rule.rate;
+                break;
+            }
+        }
+
+        if (rate <= 0.0) {
+            excluded.incrementAndGet();
+            return Decision.EXCLUDED;
+        }
+        if (rate < 1.0 && ThreadLocalRandom.current().nextDouble() >= rate) {
+            sampledOut.incrementAndGet();
+            return Decision.SAMPLED_OUT;
+        }
+        captured.incrementAndGet();
+        return Decision.CAPTURE;
+    }
+
+    // Friendly page name for analytics, e.g. "/" -> "Home"; falls back to the raw path
+    public String pageName(String path) {
+        return pageNames.getOrDefault(path, path);
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("captured", captured.get());
+        metrics.put("excluded", excluded.get());
+        metrics.put("sampledOut", sampledOut.get());
+        Map<String, Long> ruleMatches = new LinkedHashMap<>();
+        for (Rule rule : rules) {
+            ruleMatches.put(rule.pattern, rule.matched.get());
+        }
+        metrics.put("ruleMatches", ruleMatches);
+        return metrics;
+    }
+}
@@ -1,26 +1,40 @@
 package com.notebook.controller;
 
-import com.notebook.VisitorLog;
-import com.notebook.VisitorLogRepository;
+import com.notebook.VisitorLoggingService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.HandlerInterceptor;
 
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import java.time.LocalDateTime;
 
+// Single capture point for visitor analytics: every request passes through here once and
+// VisitorCapturePolicy decides whether it becomes a (single, enriched) visitor log row.
 @Component
 public class VisitorLoggingInterceptor implements HandlerInterceptor {
     @Autowired
-    private VisitorLogRepository visitorLogRepository;
+    private VisitorLoggingService visitorLoggingService;
+
+    @Autowired
+    private VisitorCapturePolicy visitorCapturePolicy;
 
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
-        String ip = request.getRemoteAddr();
-        String userAgent = request.getHeader("User-Agent");
-        VisitorLog log = new VisitorLog(ip, userAgent, LocalDateTime.now());
-        visitorLogRepository.save(log);
+        capture(request, response);
         return true;
     }
-} 
\ No newline at end of file
+
+    // Also called by PageCacheFilter for pages served from its cache, which never reach
+    // the handler mapping
+    public void capture(HttpServletRequest request, HttpServletResponse response) {
+        // Only page views count as visits; form posts and error dispatches are ignored
+        if (!"GET".equals(request.getMethod())) {
+            return;
+        }
+
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (visitorCapturePolicy.evaluate(path) == VisitorCapturePolicy.Decision.CAPTURE) {
+            visitorLoggingService.logVisitor(request, response, visitorCapturePolicy.pageName(path));
+        }
+    }
+}
@@ -1,10 +1,16 @@
 package com.notebook.controller;
 
+import com.notebook.StaticAssetPipeline;
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+import org.springframework.web.servlet.resource.ResourceUrlEncodingFilter;
+import org.springframework.web.servlet.resource.VersionResourceResolver;
 import org.springframework.web.multipart.MultipartResolver;
 import org.springframework.web.multipart.support.StandardServletMultipartResolver;
 import org.springframework.context.annotation.Bean;
@@ -14,21 +20,46 @@ public class WebConfig implements WebMvcConfigurer {
     @Autowired
     private VisitorLoggingInterceptor visitorLoggingInterceptor;
 
+    @Autowired
+    private StaticAssetCacheInterceptor staticAssetCacheInterceptor;
+
+    @Autowired
+    private StaticAssetPipeline staticAssetPipeline;
+
     @Override
     public void addInterceptors(InterceptorRegistry registry) {
         registry.addInterceptor(visitorLoggingInterceptor);
+        registry.addInterceptor(staticAssetCacheInterceptor).addPathPatterns("/css/**", "/images/**");
     }
 
+    // Assets are served from the pipeline's prepared copy (classpath as a fallback) under
+    // content-hashed URLs, preferring a precompressed .br/.gz variant the client accepts.
+    // Cache headers come from StaticAssetCacheInterceptor.
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
         registry.addResourceHandler("/css/**")
-                .addResourceLocations("classpath:/static/css/");
+                .addResourceLocations(staticAssetPipeline.location("css"), "classpath:/static/css/")
+                .resourceChain(true)
+                .addResolver(new EncodedResourceResolver())
+                .addResolver(new VersionResourceResolver().addContentVersionStrategy("/**"));
         registry.addResourceHandler("/images/**")
-                .addResourceLocations("classpath:/static/images/");
+                .addResourceLocations(staticAssetPipeline.location("images"), "classpath:/static/images/")
+                .resourceChain(true)
+                .addResolver(new EncodedResourceResolver())
+                .addResolver(new VersionResourceResolver().addContentVersionStrategy("/**"));
+    }
+
+    // Rewrites @{/css/...} links in templates (error pages included) to content-hashed URLs
+    @Bean
+    public FilterRegistrationBean<ResourceUrlEncodingFilter> resourceUrlEncodingFilter() {
+        FilterRegistrationBean<ResourceUrlEncodingFilter> registration =
+            new FilterRegistrationBean<>(new ResourceUrlEncodingFilter());
+        registration.setDispatcherTypes(DispatcherType.REQUEST, DispatcherType.ERROR);
+        return registration;
     }
 
     @Bean
     public MultipartResolver multipartResolver() {
         return new StandardServletMultipartResolver();
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,55 @@
+-- Schema as previously created by hibernate.ddl-auto. IF NOT EXISTS lets databases
+-- created that way be adopted (baseline-on-migrate) without errors.
+
+CREATE TABLE IF NOT EXISTS contact_submissions (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    name VARCHAR(255) NOT NULL,
+    email VARCHAR(255) NOT NULL,
+    phone VARCHAR(255) NOT NULL,
+    subject VARCHAR(255) NOT NULL,
+    message VARCHAR(1000) NOT NULL,
+    file_name VARCHAR(255),
+    file_type VARCHAR(255),
+    file_key VARCHAR(64),
+    file_size BIGINT,
+    submitted_at DATETIME(6),
+    PRIMARY KEY (id),
+    INDEX idx_submissions_submitted_at_id (submitted_at, id)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS visitor_logs (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    ip_address VARCHAR(255) NOT NULL,
+    user_agent VARCHAR(1000),
+    visit_time DATETIME(6) NOT NULL,
+    page_visited VARCHAR(200),
+    referrer VARCHAR(500),
+    country VARCHAR(100),
+    city VARCHAR(100),
+    device_type VARCHAR(50),
+    browser VARCHAR(100),
+    operating_system VARCHAR(100),
+    session_id VARCHAR(20),
+    PRIMARY KEY (id)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS submission_daily_counts (
+    submission_date DATE NOT NULL,
+    total BIGINT NOT NULL,
+    with_files BIGINT NOT NULL,
+    PRIMARY KEY (submission_date)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS visitor_hourly_rollups (
+    bucket_hour DATETIME(6) NOT NULL,
+    dimension VARCHAR(20) NOT NULL,
+    dimension_value VARCHAR(200) NOT NULL,
+    visits BIGINT NOT NULL,
+    PRIMARY KEY (bucket_hour, dimension, dimension_value)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS rollup_watermarks (
+    name VARCHAR(50) NOT NULL,
+    last_id BIGINT NOT NULL,
+    PRIMARY KEY (name)
+) ENGINE=InnoDB;
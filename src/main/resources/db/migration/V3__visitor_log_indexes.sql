@@ -0,0 +1,9 @@
+-- visitor_logs had no secondary indexes: every time-range count, the recent-visits
+-- list and the unique-visitor lookup scanned the table.
+
+CREATE INDEX idx_visitor_logs_visit_time ON visitor_logs (visit_time);
+CREATE INDEX idx_visitor_logs_page_time ON visitor_logs (page_visited, visit_time);
+CREATE INDEX idx_visitor_logs_ip_time ON visitor_logs (ip_address, visit_time);
+CREATE INDEX idx_visitor_logs_device_type ON visitor_logs (device_type);
+CREATE INDEX idx_visitor_logs_browser ON visitor_logs (browser);
+CREATE INDEX idx_visitor_logs_operating_system ON visitor_logs (operating_system);
@@ -0,0 +1,11 @@
+-- Per-day HyperLogLog sketches behind the unique visitor/session counts, replacing
+-- SELECT DISTINCT ip_address over visitor_logs. kind is VISITORS, SESSIONS or
+-- PAGE_VISITORS; sketch_key is the page for PAGE_VISITORS and '' otherwise.
+
+CREATE TABLE IF NOT EXISTS visitor_daily_sketches (
+    sketch_date DATE NOT NULL,
+    kind VARCHAR(20) NOT NULL,
+    sketch_key VARCHAR(200) NOT NULL,
+    registers VARBINARY(4098) NOT NULL,
+    PRIMARY KEY (sketch_date, kind, sketch_key)
+) ENGINE=InnoDB;
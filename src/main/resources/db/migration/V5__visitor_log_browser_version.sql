@@ -0,0 +1,3 @@
+-- Major browser version from the user-agent classifier, e.g. "120" for Chrome 120.
+
+ALTER TABLE visitor_logs ADD COLUMN browser_version VARCHAR(20);